@@ -0,0 +1,60 @@
+package com.digitalsauce;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pushes one synthesized utterance through {@link AudioService#pump} and drains it the way
+ * the mixer does, in {@link MixCore#BLOCK_BYTES} reads. The chunk reader stands in for
+ * Azure's {@code AudioDataStream}, so no speech service or audio device is needed.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AudioBufferingBenchmark {
+    @Param({"1", "5"})
+    private int seconds;
+
+    private byte[] utterance;
+    private final byte[] block = new byte[MixCore.BLOCK_BYTES];
+
+    @Setup
+    public void setUp() {
+        utterance = new byte[seconds * 16000 * 2];
+        new Random(42).nextBytes(utterance);
+    }
+
+    @Benchmark
+    public void pumpAndDrain(Blackhole blackhole) {
+        PcmRingBuffer ring = new PcmRingBuffer(AudioService.STREAM_BUFFER_SIZE);
+        int[] position = {0};
+        byte[] pcm = AudioService.pump(buffer -> {
+            int n = Math.min(buffer.length, utterance.length - position[0]);
+            System.arraycopy(utterance, position[0], buffer, 0, n);
+            position[0] += n;
+            return n;
+        }, ring);
+        ring.finish();
+        int n;
+        while ((n = ring.read(block, 0, block.length)) > 0) {
+            blackhole.consume(n);
+        }
+        blackhole.consume(pcm);
+    }
+}
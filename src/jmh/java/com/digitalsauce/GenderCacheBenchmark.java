@@ -0,0 +1,89 @@
+package com.digitalsauce;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Loading and saving the gender cache snapshot at 1k, 10k and 100k entries, plus appending
+ * a tick's worth of lookups to the journal. Everything lives in a temporary directory.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GenderCacheBenchmark {
+    private static final int LOOKUPS_PER_FLUSH = 50;
+
+    @Param({"1000", "10000", "100000"})
+    private int entries;
+
+    private File dir;
+    private GenderCache cache;
+    private int nextLookup;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("gender-cache-bench").toFile();
+        GenderCache seed = new GenderCache(dir);
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < entries; i++) {
+            seed.setDefaultGender("Npc " + i, i % 3 == 0 ? "female" : "male", now);
+            if (i % 10 == 0) {
+                seed.setGenderForId("Npc " + i, i, "female");
+            }
+        }
+        seed.close();
+        cache = new GenderCache(dir);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        cache.close();
+        try (Stream<Path> files = Files.walk(dir.toPath())) {
+            files.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }
+    }
+
+    @Benchmark
+    public int load() {
+        GenderCache loaded = new GenderCache(dir);
+        loaded.close();
+        return loaded.size();
+    }
+
+    @Benchmark
+    public void save() {
+        cache.saveCache();
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public void journalFlush() {
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < LOOKUPS_PER_FLUSH; i++) {
+            cache.setDefaultGender("Npc " + (nextLookup++ % entries), "male", now);
+        }
+        cache.flush();
+    }
+}
@@ -0,0 +1,71 @@
+package com.digitalsauce;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Synthesizes a line with {@link LocalTtsEngine} and streams it through
+ * {@link AudioService#streamAudio} into a ring buffer drained in mixer-sized blocks. Latency and
+ * chunk delay are zero, so this measures the pipeline's own cost per line with no network.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LocalEngineBenchmark {
+    private static final String LINE = "Hello there adventurer, have you come to help me find my lost sheep?";
+
+    @Param({"512", "3200"})
+    private int chunkBytes;
+
+    private LocalTtsEngine engine;
+    private final AudioService audioService = new AudioService(null);
+    private final VoiceProfile profile = new VoiceProfile("en-US-GuyNeural");
+    private final byte[] block = new byte[MixCore.BLOCK_BYTES];
+
+    @Setup
+    public void setUp() {
+        engine = new LocalTtsEngine(new CharacterTTSConfig() {
+            @Override
+            public int localLatencyMs() {
+                return 0;
+            }
+
+            @Override
+            public int localChunkBytes() {
+                return chunkBytes;
+            }
+
+            @Override
+            public int localChunkDelayMs() {
+                return 0;
+            }
+        });
+    }
+
+    @Benchmark
+    public void synthesizeAndStream(Blackhole blackhole) throws Exception {
+        PcmRingBuffer ring = new PcmRingBuffer(AudioService.STREAM_BUFFER_SIZE);
+        try (PcmSource source = engine.synthesize(LINE, profile)) {
+            blackhole.consume(audioService.streamAudio(source, ring));
+        }
+        int n;
+        while ((n = ring.read(block, 0, block.length)) > 0) {
+            blackhole.consume(n);
+        }
+    }
+}
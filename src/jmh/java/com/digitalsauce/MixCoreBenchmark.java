@@ -0,0 +1,86 @@
+package com.digitalsauce;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One mixer block at 1, 8 and 32 concurrent streams, reported in ns per output frame.
+ * Run with {@code ./gradlew jmh}; the gc profiler's {@code gc.alloc.rate.norm} should stay at 0.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MixCoreBenchmark {
+    @Param({"1", "8", "32"})
+    private int streams;
+
+    private MixCore mixCore;
+    private InputStream[] sources;
+
+    @Setup
+    public void setUp() {
+        mixCore = new MixCore();
+        Random random = new Random(42);
+        sources = new InputStream[streams];
+        for (int i = 0; i < streams; i++) {
+            byte[] pcm = new byte[16000 * 2];
+            random.nextBytes(pcm);
+            sources[i] = new LoopingPcm(pcm);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(MixCore.BLOCK_SAMPLES)
+    public byte[] mixBlock() throws IOException {
+        mixCore.begin();
+        for (InputStream source : sources) {
+            mixCore.mix(source);
+        }
+        return mixCore.finish();
+    }
+
+    /**
+     * Endless, allocation-free PCM source so the benchmark only measures the mixer.
+     */
+    static final class LoopingPcm extends InputStream {
+        private final byte[] pcm;
+        private int pos = 0;
+
+        LoopingPcm(byte[] pcm) {
+            this.pcm = pcm;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            int n = Math.min(len, pcm.length - pos);
+            System.arraycopy(pcm, pos, b, off, n);
+            pos = (pos + n) % pcm.length;
+            return n;
+        }
+
+        @Override
+        public int read() {
+            int value = pcm[pos] & 0xff;
+            pos = (pos + 1) % pcm.length;
+            return value;
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.digitalsauce;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One mixer block through a {@link PitchShifter}, reported in ns per output frame. This is
+ * the cost the mixer thread pays per pitched stream on top of {@link MixCoreBenchmark}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PitchShifterBenchmark {
+    @Param({"0.8", "1.2"})
+    private double ratio;
+
+    private PitchShifter shifter;
+    private final byte[] block = new byte[MixCore.BLOCK_BYTES];
+
+    @Setup
+    public void setUp() {
+        byte[] pcm = new byte[16000 * 2];
+        new Random(42).nextBytes(pcm);
+        shifter = new PitchShifter(new MixCoreBenchmark.LoopingPcm(pcm), ratio);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(MixCore.BLOCK_SAMPLES)
+    public byte[] shiftBlock() throws IOException {
+        shifter.read(block, 0, block.length);
+        return block;
+    }
+}
@@ -0,0 +1,44 @@
+package com.digitalsauce;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The text work {@code playCustomText} does before every request: sanitizing widget text,
+ * hashing the cache key and building the SSML document.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SsmlBuilderBenchmark {
+    private static final String VOICE = "en-GB-RyanNeural";
+    private final String dialogue = "Greetings, adventurer! I've heard tales of your deeds<br>in Lumbridge & beyond. "
+            + "Would you help an old man find his <col=ff0000>lost</col> cat?";
+
+    @Benchmark
+    public String sanitize() {
+        return SsmlBuilder.sanitize(dialogue);
+    }
+
+    @Benchmark
+    public String cacheKey() {
+        return AudioCache.key(VOICE, SsmlBuilder.sanitize(dialogue));
+    }
+
+    @Benchmark
+    public String buildSsml() {
+        return SsmlBuilder.build(VOICE, SsmlBuilder.sanitize(dialogue));
+    }
+}
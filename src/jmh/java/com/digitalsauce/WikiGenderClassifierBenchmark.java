@@ -0,0 +1,83 @@
+package com.digitalsauce;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures one offline pass over the wiki responses under {@code src/test/resources/wiki}.
+ * Their expected genders are asserted by {@code WikiGenderClassifierTest}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WikiGenderClassifierBenchmark {
+    private final List<String> responses = new ArrayList<>();
+    private final List<List<String>> requestedNames = new ArrayList<>();
+
+    @Setup
+    public void setUp() throws IOException {
+        Properties labels = new Properties();
+        try (Reader reader = resource("labels.properties")) {
+            labels.load(reader);
+        }
+        for (String fixture : new TreeSet<>(labels.stringPropertyNames())) {
+            List<String> names = new ArrayList<>();
+            for (String label : labels.getProperty(fixture).split(",")) {
+                names.add(label.substring(0, label.lastIndexOf(':')));
+            }
+            responses.add(readAll(fixture));
+            requestedNames.add(names);
+        }
+    }
+
+    @Benchmark
+    public void classifyCorpus(Blackhole blackhole) throws IOException {
+        for (int i = 0; i < responses.size(); i++) {
+            blackhole.consume(WikiGenderClassifier.classifyResponse(new StringReader(responses.get(i)), requestedNames.get(i)));
+        }
+    }
+
+    private static Reader resource(String name) throws IOException {
+        InputStream in = WikiGenderClassifierBenchmark.class.getResourceAsStream("/wiki/" + name);
+        if (in == null) {
+            throw new IOException("Missing wiki fixture " + name);
+        }
+        return new InputStreamReader(in, StandardCharsets.UTF_8);
+    }
+
+    private static String readAll(String name) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        char[] buffer = new char[4096];
+        try (Reader reader = resource(name)) {
+            int n;
+            while ((n = reader.read(buffer)) != -1) {
+                sb.append(buffer, 0, n);
+            }
+        }
+        return sb.toString();
+    }
+}
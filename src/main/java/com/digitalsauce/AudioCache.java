@@ -0,0 +1,172 @@
+package com.digitalsauce;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Content-addressed disk cache of synthesized 16 kHz / 16-bit mono PCM.
+ * Clips are stored as raw PCM under {@code ~/.runelite/charactertts/audio}, named by
+ * the SHA-256 of everything that influences the synthesized audio. The directory is kept
+ * within a byte budget by deleting the clips played least recently, going by modification time,
+ * which each load refreshes.
+ */
+@Slf4j
+public class AudioCache {
+    private static final String CACHE_DIR = System.getProperty("user.home") + File.separator + ".runelite" + File.separator + "charactertts" + File.separator + "audio";
+    private static final String CLIP_EXTENSION = ".pcm";
+    private static final String TMP_EXTENSION = ".tmp";
+    // Evicting a little past the budget keeps every store from rescanning the directory
+    private static final double EVICT_TO = 0.9;
+
+    private final Path cacheDir;
+    private long maxBytes = Long.MAX_VALUE;
+    private long storedBytes = 0;
+    private volatile boolean closed = false;
+
+    public AudioCache() {
+        this.cacheDir = new File(CACHE_DIR).toPath();
+        try {
+            Files.createDirectories(cacheDir);
+        } catch (IOException e) {
+            log.error("Error creating audio cache directory: ", e);
+        }
+        for (File file : listFiles()) {
+            if (file.getName().endsWith(TMP_EXTENSION)) {
+                // Left behind by a store that never finished
+                file.delete();
+            } else if (file.getName().endsWith(CLIP_EXTENSION)) {
+                storedBytes += file.length();
+            }
+        }
+    }
+
+    /**
+     * Stops storing clips; a synthesis still finishing as the plugin shuts down is not written.
+     */
+    public void close() {
+        closed = true;
+    }
+
+    public synchronized void setMaxBytes(long maxBytes) {
+        this.maxBytes = maxBytes;
+        evict();
+    }
+
+    public synchronized long getStoredBytes() {
+        return storedBytes;
+    }
+
+    public static String normalizeText(String text) {
+        return text.replaceAll("\\s+", " ").trim();
+    }
+
+    public static String key(String voice, String text) {
+        String material = voice + '\0' + normalizeText(text);
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(material.getBytes(StandardCharsets.UTF_8));
+            StringBuilder sb = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                sb.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+            }
+            return sb.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    public boolean contains(String key) {
+        return Files.isRegularFile(cacheDir.resolve(key + CLIP_EXTENSION));
+    }
+
+    /**
+     * @return the cached PCM for {@code key}, or {@code null} on a miss
+     */
+    public byte[] load(String key) {
+        Path clip = cacheDir.resolve(key + CLIP_EXTENSION);
+        if (!Files.isRegularFile(clip)) {
+            return null;
+        }
+        try {
+            byte[] pcm = Files.readAllBytes(clip);
+            Files.setLastModifiedTime(clip, FileTime.fromMillis(System.currentTimeMillis()));
+            return pcm;
+        } catch (IOException e) {
+            log.error("Error reading cached clip {}: ", key, e);
+            return null;
+        }
+    }
+
+    public void store(String key, byte[] pcm) {
+        if (closed) {
+            return;
+        }
+        Path clip = cacheDir.resolve(key + CLIP_EXTENSION);
+        Path tmp = null;
+        try {
+            // Each store writes its own file, so concurrent stores of one clip cannot interleave
+            tmp = Files.createTempFile(cacheDir, key, TMP_EXTENSION);
+            Files.write(tmp, pcm);
+            synchronized (this) {
+                long replaced = Files.isRegularFile(clip) ? Files.size(clip) : 0;
+                Files.move(tmp, clip, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                storedBytes += pcm.length - replaced;
+                evict();
+            }
+        } catch (IOException e) {
+            log.error("Error writing cached clip {}: ", key, e);
+            if (tmp != null) {
+                try {
+                    Files.deleteIfExists(tmp);
+                } catch (IOException ignored) {
+                }
+            }
+        }
+    }
+
+    private void evict() {
+        if (storedBytes <= maxBytes) {
+            return;
+        }
+        File[] clips = Arrays.stream(listFiles())
+                .filter(file -> file.getName().endsWith(CLIP_EXTENSION))
+                .toArray(File[]::new);
+        // Snapshot the times; they may change while sorting
+        long[] lastPlayed = new long[clips.length];
+        Integer[] order = new Integer[clips.length];
+        // Recount while listing, in case clips were deleted behind the cache's back
+        storedBytes = 0;
+        for (int i = 0; i < clips.length; i++) {
+            lastPlayed[i] = clips[i].lastModified();
+            storedBytes += clips[i].length();
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparingLong(i -> lastPlayed[i]));
+        long target = (long) (maxBytes * EVICT_TO);
+        for (int i : order) {
+            if (storedBytes <= target) {
+                break;
+            }
+            long length = clips[i].length();
+            if (clips[i].delete()) {
+                storedBytes -= length;
+            }
+        }
+        log.debug("Evicted disk cache down to {} bytes", storedBytes);
+    }
+
+    private File[] listFiles() {
+        File[] files = cacheDir.toFile().listFiles();
+        return files != null ? files : new File[0];
+    }
+}
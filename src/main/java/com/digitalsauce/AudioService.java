@@ -1,8 +1,8 @@
 package com.digitalsauce;
 
-import com.microsoft.cognitiveservices.speech.AudioDataStream;
 import javax.sound.sampled.AudioFormat;
 import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.util.logging.Logger;
@@ -11,37 +11,129 @@ import java.util.logging.Level;
 public class AudioService {
     private static final Logger log = Logger.getLogger(AudioService.class.getName());
     private static final int BUFFER_SIZE = 1024; // Aligned with MixerService
+    static final int STREAM_BUFFER_SIZE = 256 * 1024; // ~8 seconds of 16 kHz mono PCM
+    private static final AudioFormat FORMAT = new AudioFormat(16000, 16, 1, true, false);
     private final MixerService mixerService;
+    private volatile int silenceThreshold = SilenceTrimmer.threshold(-50);
 
     public AudioService(MixerService mixerService) {
         this.mixerService = mixerService;
     }
 
-    public void playStreamingAudio(AudioDataStream audioDataStream, CharacterTTSPlugin.TtsSource source) {
+    /**
+     * Registers a stream with the mixer before any audio has arrived and feeds each chunk from
+     * the engine into it as soon as it is read, so playback starts with the first chunk.
+     * Returns the complete PCM if the engine delivered the whole clip, so the caller can cache it,
+     * or {@code null} for partial, skipped or failed streams.
+     *
+     * @param generation the dialogue generation the line belongs to; ignored for other sources
+     * @param gain mixer gain for the speaker's volume setting
+     * @param pitch frequency ratio for the speaker's pitch setting
+     */
+    public byte[] playStreamingAudio(PcmSource pcmSource, CharacterTTSPlugin.TtsSource source, long generation, double gain, double pitch) {
+        PcmRingBuffer ring = new PcmRingBuffer(STREAM_BUFFER_SIZE);
+        enqueue(new AudioInputStream(ring, FORMAT, AudioSystem.NOT_SPECIFIED), source, generation, gain, pitch);
+        return streamAudio(pcmSource, ring);
+    }
+
+    /**
+     * Sets the level below which leading silence is skipped while streaming.
+     */
+    public void setSilenceThreshold(int dbfs) {
+        silenceThreshold = SilenceTrimmer.threshold(dbfs);
+    }
+
+    /**
+     * Feeds the engine's chunks into {@code sink} as they arrive, skipping leading silence, and
+     * finishes it at the end.
+     *
+     * @return the complete, untrimmed PCM, or {@code null} for partial, stopped or failed streams
+     */
+    public byte[] streamAudio(PcmSource pcmSource, PcmSink sink) {
+        PcmSink trimmed = SilenceTrimmer.skipLeading(sink, silenceThreshold);
         try {
-            ByteArrayOutputStream baos = new ByteArrayOutputStream();
-            byte[] buffer = new byte[BUFFER_SIZE];
-            int bytesRead;
-            while ((bytesRead = (int) audioDataStream.readData(buffer)) > 0) {
-                baos.write(buffer, 0, bytesRead);
-            }
-            byte[] audioBytes = baos.toByteArray();
-            AudioFormat format = new AudioFormat(16000, 16, 1, true, false);
-            AudioInputStream stream = new AudioInputStream(
-                    new ByteArrayInputStream(audioBytes),
-                    format,
-                    audioBytes.length / format.getFrameSize()
-            );
-            if (source == CharacterTTSPlugin.TtsSource.DIALOGUE) {
-                mixerService.addDialogueAudio(stream);
-            } else {
-                mixerService.addFloatingAudio(stream);
-            }
+            byte[] pcm = pump(pcmSource::read, trimmed);
+            return pcm != null && pcmSource.isComplete() ? pcm : null;
         } catch (Exception e) {
             log.log(Level.SEVERE, "Error streaming audio: ", e);
+            return null;
+        } finally {
+            trimmed.finish();
+        }
+    }
+
+    /**
+     * Starts one floating stream for a listener of {@code broadcast}, mixed at {@code gain} and
+     * {@code pan} and shifted by {@code pitch}.
+     */
+    public MixerStream playBroadcast(PcmBroadcast broadcast, double gain, double pan, double pitch) {
+        return mixerService.addFloatingAudio(new AudioInputStream(broadcast.subscribe(), FORMAT, AudioSystem.NOT_SPECIFIED), gain, pan, pitch);
+    }
+
+    public PcmBroadcast newBroadcast() {
+        return new PcmBroadcast(STREAM_BUFFER_SIZE);
+    }
+
+    /**
+     * Reads a whole clip without playing it, for lines synthesized ahead of time.
+     *
+     * @return the PCM, or {@code null} unless the engine delivered the whole clip
+     */
+    public byte[] readAudio(PcmSource pcmSource) {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        byte[] buffer = new byte[BUFFER_SIZE];
+        int bytesRead;
+        while ((bytesRead = pcmSource.read(buffer)) > 0) {
+            baos.write(buffer, 0, bytesRead);
+        }
+        return pcmSource.isComplete() ? baos.toByteArray() : null;
+    }
+
+    /**
+     * Copies every chunk from {@code reader} into {@code sink} as it arrives, collecting the
+     * whole clip on the side.
+     *
+     * @return the collected PCM, or {@code null} if the consumer stopped the stream early
+     */
+    static byte[] pump(ChunkReader reader, PcmSink sink) {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        byte[] buffer = new byte[BUFFER_SIZE];
+        int bytesRead;
+        while ((bytesRead = (int) reader.read(buffer)) > 0) {
+            if (!sink.write(buffer, 0, bytesRead)) {
+                log.info("Stream was stopped before synthesis finished.");
+                return null;
+            }
+            baos.write(buffer, 0, bytesRead);
+        }
+        return baos.toByteArray();
+    }
+
+    public void playCachedAudio(byte[] audioBytes, CharacterTTSPlugin.TtsSource source, long generation, double gain, double pitch) {
+        AudioInputStream stream = new AudioInputStream(
+                new ByteArrayInputStream(audioBytes),
+                FORMAT,
+                audioBytes.length / FORMAT.getFrameSize()
+        );
+        enqueue(stream, source, generation, gain, pitch);
+    }
+
+    private void enqueue(AudioInputStream stream, CharacterTTSPlugin.TtsSource source, long generation, double gain, double pitch) {
+        if (source == CharacterTTSPlugin.TtsSource.DIALOGUE) {
+            mixerService.addDialogueAudio(stream, generation, gain, pitch);
+        } else {
+            mixerService.addFloatingAudio(stream, gain, 0.0, pitch);
         }
     }
 
+    /**
+     * A source of PCM chunks shaped like {@link PcmSource#read}: fills the buffer and returns the
+     * byte count, or 0 once the stream is exhausted.
+     */
+    interface ChunkReader {
+        long read(byte[] buffer);
+    }
+
     public void stopAudio() {
         mixerService.stop();
     }
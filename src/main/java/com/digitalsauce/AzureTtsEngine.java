@@ -0,0 +1,106 @@
+package com.digitalsauce;
+
+import com.microsoft.cognitiveservices.speech.AudioDataStream;
+import com.microsoft.cognitiveservices.speech.ResultReason;
+import com.microsoft.cognitiveservices.speech.SpeechSynthesisResult;
+import com.microsoft.cognitiveservices.speech.StreamStatus;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Collection;
+
+/**
+ * Azure Speech backend: builds SSML and streams the result from a pooled synthesizer.
+ */
+@Slf4j
+public class AzureTtsEngine implements TtsEngine {
+    private final SynthesizerPool synthesizerPool = new SynthesizerPool();
+    private volatile boolean configured = false;
+
+    public void configure(String apiKey, String region) {
+        configured = !apiKey.isEmpty() && !region.isEmpty();
+        synthesizerPool.configure(apiKey, region);
+    }
+
+    @Override
+    public PcmSource synthesize(String text, VoiceProfile profile) throws Exception {
+        String ssml = SsmlBuilder.build(profile.getVoice(), text);
+        SynthesizerPool.PooledSynthesizer synthesizer = synthesizerPool.acquire(profile.getVoice());
+        SpeechSynthesisResult result = null;
+        try {
+            result = synthesizer.getSynthesizer().StartSpeakingSsmlAsync(ssml).get();
+            ResultReason reason = result.getReason();
+            if (reason != ResultReason.SynthesizingAudioStarted && reason != ResultReason.SynthesizingAudioCompleted) {
+                log.error("Speech synthesis failed with reason: {}", reason);
+                throw new IllegalStateException(String.valueOf(reason));
+            }
+            return new AzurePcmSource(synthesizer, result, AudioDataStream.fromResult(result));
+        } catch (Exception e) {
+            if (result != null) {
+                result.close();
+            }
+            synthesizerPool.invalidate(synthesizer);
+            throw e;
+        }
+    }
+
+    @Override
+    public void prewarm(Collection<String> voices) {
+        if (configured) {
+            synthesizerPool.prewarm(voices);
+        }
+    }
+
+    @Override
+    public void close() {
+        synthesizerPool.close();
+    }
+
+    private class AzurePcmSource implements PcmSource {
+        private final SynthesizerPool.PooledSynthesizer synthesizer;
+        private final SpeechSynthesisResult result;
+        private final AudioDataStream audioDataStream;
+        private volatile boolean cancelled = false;
+
+        private AzurePcmSource(SynthesizerPool.PooledSynthesizer synthesizer, SpeechSynthesisResult result, AudioDataStream audioDataStream) {
+            this.synthesizer = synthesizer;
+            this.result = result;
+            this.audioDataStream = audioDataStream;
+        }
+
+        @Override
+        public int read(byte[] buffer) {
+            return (int) audioDataStream.readData(buffer);
+        }
+
+        @Override
+        public boolean isComplete() {
+            return !cancelled && audioDataStream.getStatus() == StreamStatus.AllData;
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            try {
+                synthesizer.getSynthesizer().StopSpeakingAsync();
+            } catch (RuntimeException e) {
+                log.error("Error stopping synthesis: ", e);
+            }
+        }
+
+        /**
+         * Returns the synthesizer to the pool, or closes it if it may still hold the remains
+         * of a stopped line.
+         */
+        @Override
+        public void close() {
+            boolean drained = audioDataStream.getStatus() == StreamStatus.AllData;
+            audioDataStream.close();
+            result.close();
+            if (!cancelled && drained) {
+                synthesizerPool.release(synthesizer);
+            } else {
+                synthesizerPool.invalidate(synthesizer);
+            }
+        }
+    }
+}
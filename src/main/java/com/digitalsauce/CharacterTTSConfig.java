@@ -7,6 +7,11 @@ import net.runelite.client.config.Range;
 
 @ConfigGroup("charactertts")
 public interface CharacterTTSConfig extends Config {
+	enum Engine {
+		AZURE,
+		LOCAL
+	}
+
 	@ConfigItem(
 			keyName = "azureApiKey",
 			name = "Azure API Key",
@@ -186,4 +191,155 @@ public interface CharacterTTSConfig extends Config {
 	default double maxVolumeRatio() {
 		return 0.66;
 	}
-}
\ No newline at end of file
+
+	@ConfigItem(
+			keyName = "diskAudioCache",
+			name = "Disk Audio Cache",
+			description = "Store synthesized lines on disk and replay repeated lines without calling Azure",
+			position = 18
+	)
+	default boolean diskAudioCache() {
+		return true;
+	}
+
+	@Range(min = 0, max = 262144)
+	@ConfigItem(
+			keyName = "memoryCacheSize",
+			name = "Memory Cache Size (KB)",
+			description = "Memory budget for recently played lines, evicted least recently used first",
+			position = 19
+	)
+	default int memoryCacheSize() {
+		return 8192;
+	}
+
+	@Range(min = 1, max = 365)
+	@ConfigItem(
+			keyName = "genderCacheDays",
+			name = "Gender Cache TTL (days)",
+			description = "How long a resolved NPC gender is trusted before the wiki is asked again",
+			position = 20
+	)
+	default int genderCacheDays() {
+		return 30;
+	}
+
+	@Range(min = 1, max = 168)
+	@ConfigItem(
+			keyName = "genderNegativeCacheHours",
+			name = "Unknown Gender TTL (hours)",
+			description = "How long an unknown or missing wiki result is cached before retrying",
+			position = 21
+	)
+	default int genderNegativeCacheHours() {
+		return 6;
+	}
+
+	@ConfigItem(
+			keyName = "speculativeDialogue",
+			name = "Pre-synthesize Dialogue Options",
+			description = "Synthesize every visible dialogue option in the background so the chosen reply plays instantly. Uses more Azure characters",
+			position = 22
+	)
+	default boolean speculativeDialogue() {
+		return true;
+	}
+
+	@Range(min = 1, max = 30)
+	@ConfigItem(
+			keyName = "floatingTextMaxAge",
+			name = "Floating Text Max Wait (s)",
+			description = "Floating text still waiting for synthesis after this many seconds is dropped",
+			position = 23
+	)
+	default int floatingTextMaxAge() {
+		return 3;
+	}
+
+	@Range(min = 0, max = 120)
+	@ConfigItem(
+			keyName = "speakerLinesPerMinute",
+			name = "Floating Lines per Speaker (/min)",
+			description = "How many floating text lines one player or NPC may trigger per minute, after a short burst. 0 for no limit",
+			position = 24
+	)
+	default int speakerLinesPerMinute() {
+		return 6;
+	}
+
+	@Range(min = 0, max = 600)
+	@ConfigItem(
+			keyName = "globalLinesPerMinute",
+			name = "Floating Lines Total (/min)",
+			description = "How many floating text lines may be synthesized per minute across all speakers. 0 for no limit",
+			position = 25
+	)
+	default int globalLinesPerMinute() {
+		return 60;
+	}
+
+	@ConfigItem(
+			keyName = "ttsEngine",
+			name = "TTS Engine",
+			description = "Azure for real voices; Local generates offline tones for testing without a key or network",
+			position = 26
+	)
+	default Engine ttsEngine() {
+		return Engine.AZURE;
+	}
+
+	@Range(min = 0, max = 5000)
+	@ConfigItem(
+			keyName = "localLatencyMs",
+			name = "Local Engine Latency (ms)",
+			description = "Simulated delay before the local engine delivers its first audio",
+			position = 27
+	)
+	default int localLatencyMs() {
+		return 300;
+	}
+
+	@Range(min = 512, max = 65536)
+	@ConfigItem(
+			keyName = "localChunkBytes",
+			name = "Local Engine Chunk (bytes)",
+			description = "Size of each audio chunk the local engine delivers",
+			position = 28
+	)
+	default int localChunkBytes() {
+		return 3200;
+	}
+
+	@Range(min = 0, max = 1000)
+	@ConfigItem(
+			keyName = "localChunkDelayMs",
+			name = "Local Engine Chunk Delay (ms)",
+			description = "Simulated delay between chunks from the local engine",
+			position = 29
+	)
+	default int localChunkDelayMs() {
+		return 20;
+	}
+
+	@Range(min = -90, max = -30)
+	@ConfigItem(
+			keyName = "silenceThreshold",
+			name = "Silence Threshold (dBFS)",
+			description = "Audio quieter than this at the start and end of each line is cut, so lines start without a pause",
+			position = 30
+	)
+	default int silenceThreshold() {
+		return -50;
+	}
+
+	@Range(min = 0, max = 16384)
+	@ConfigItem(
+			keyName = "diskCacheSize",
+			name = "Disk Cache Size (MB)",
+			description = "Disk budget for cached lines, evicted least recently played first",
+			position = 31
+	)
+	default int diskCacheSize() {
+		return 256;
+	}
+}
@@ -56,6 +56,12 @@ public class CharacterTTSConfigPanel extends PluginPanel {
     private final JTextField npcIdField;
     private final JComboBox<String> genderOverrideDropdown;
     private final JButton saveConfigButton;
+    private final JLabel cacheHitRatioLabel;
+    private final JLabel cacheResidentLabel;
+    private final JLabel mixerUnderrunLabel;
+    private final JLabel queueDepthLabel;
+    private final JLabel queueDropsLabel;
+    private final Timer statsTimer;
 
     public CharacterTTSConfigPanel(CharacterTTSConfig config, CharacterTTSPlugin plugin, ConfigManager configManager) {
         this.config = config;
@@ -169,6 +175,25 @@ public class CharacterTTSConfigPanel extends PluginPanel {
         mainContent.add(blockerPanel);
         mainContent.add(Box.createVerticalStrut(10));
 
+        JPanel cacheStatsPanel = new JPanel();
+        cacheStatsPanel.setLayout(new BoxLayout(cacheStatsPanel, BoxLayout.Y_AXIS));
+        cacheStatsPanel.setBackground(ColorScheme.DARK_GRAY_COLOR);
+        cacheStatsPanel.setBorder(new TitledBorder("Audio Stats"));
+        cacheHitRatioLabel = new JLabel();
+        cacheResidentLabel = new JLabel();
+        mixerUnderrunLabel = new JLabel();
+        cacheStatsPanel.add(cacheHitRatioLabel);
+        cacheStatsPanel.add(cacheResidentLabel);
+        cacheStatsPanel.add(mixerUnderrunLabel);
+        queueDepthLabel = new JLabel();
+        queueDropsLabel = new JLabel();
+        cacheStatsPanel.add(queueDepthLabel);
+        cacheStatsPanel.add(queueDropsLabel);
+        mainContent.add(cacheStatsPanel);
+        mainContent.add(Box.createVerticalStrut(10));
+        statsTimer = new Timer(1000, e -> updateStats());
+        updateStats();
+
         JPanel voiceConfigPanel = new JPanel();
         voiceConfigPanel.setLayout(new BoxLayout(voiceConfigPanel, BoxLayout.Y_AXIS));
         voiceConfigPanel.setBackground(ColorScheme.DARK_GRAY_COLOR);
@@ -234,9 +259,8 @@ public class CharacterTTSConfigPanel extends PluginPanel {
             String npcIdStr = npcIdField.getText().trim();
             String gender = (String) genderOverrideDropdown.getSelectedItem();
             if (!npcName.isEmpty()) {
-                GenderService genderService = new GenderService();
                 int npcId = npcIdStr.isEmpty() ? -1 : Integer.parseInt(npcIdStr);
-                genderService.overrideGender(npcName, npcId, gender);
+                plugin.getGenderService().overrideGender(npcName, npcId, gender);
                 log.info("Gender overridden for {} (ID: {}) to {}", npcName, npcId, gender);
             }
         });
@@ -304,6 +328,38 @@ public class CharacterTTSConfigPanel extends PluginPanel {
         azureRegionField.getDocument().addDocumentListener(refreshListener);
     }
 
+    @Override
+    public void onActivate() {
+        updateStats();
+        statsTimer.start();
+    }
+
+    @Override
+    public void onDeactivate() {
+        statsTimer.stop();
+    }
+
+    private void updateStats() {
+        ClipCache clipCache = plugin.getClipCache();
+        cacheHitRatioLabel.setText(String.format("Hit ratio: %.1f%%", clipCache.getHitRatio() * 100.0));
+        cacheResidentLabel.setText(String.format("Resident: %.1f KB", clipCache.getResidentBytes() / 1024.0));
+        MixerService mixerService = plugin.getMixerService();
+        mixerUnderrunLabel.setText("Underruns: " + mixerService.getStreamUnderruns() + " stream / "
+                + mixerService.getOutputUnderruns() + " output");
+        TtsScheduler scheduler = plugin.getTtsScheduler();
+        if (scheduler != null) {
+            StringBuilder depth = new StringBuilder("Queued:");
+            StringBuilder drops = new StringBuilder("Dropped:");
+            for (CharacterTTSPlugin.TtsSource source : CharacterTTSPlugin.TtsSource.values()) {
+                String name = source.name().toLowerCase();
+                depth.append(' ').append(name).append(' ').append(scheduler.getQueueDepth(source));
+                drops.append(' ').append(name).append(' ').append(scheduler.getDropped(source));
+            }
+            queueDepthLabel.setText(depth.toString());
+            queueDropsLabel.setText(drops.toString());
+        }
+    }
+
     private String formatPitch(int sliderValue) {
         if (sliderValue == 0) return "default";
         return sliderValue > 0 ? "+" + sliderValue + "%" : sliderValue + "%";
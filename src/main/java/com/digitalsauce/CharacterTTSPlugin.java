@@ -2,29 +2,34 @@ package com.digitalsauce;
 
 import com.google.inject.Provides;
 import javax.inject.Inject;
-import com.microsoft.cognitiveservices.speech.audio.AudioConfig;
-import com.microsoft.cognitiveservices.speech.audio.AudioOutputStream;
 import lombok.extern.slf4j.Slf4j;
 import net.runelite.api.*;
-import net.runelite.api.coords.WorldPoint;
 import net.runelite.api.events.*;
 import net.runelite.api.widgets.*;
+import net.runelite.client.callback.ClientThread;
 import net.runelite.client.config.ConfigManager;
 import net.runelite.client.eventbus.Subscribe;
+import net.runelite.client.events.ConfigChanged;
 import net.runelite.client.plugins.Plugin;
 import net.runelite.client.plugins.PluginDescriptor;
 import net.runelite.client.ui.ClientToolbar;
 import net.runelite.client.ui.NavigationButton;
-import com.microsoft.cognitiveservices.speech.*;
 import javax.imageio.ImageIO;
 import java.awt.image.BufferedImage;
 import java.io.IOException;
 import javax.sound.sampled.LineUnavailableException;
-import javax.swing.Timer;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
 import java.util.concurrent.Future;
 
 @Slf4j
@@ -36,12 +41,16 @@ public class CharacterTTSPlugin extends Plugin {
     public enum TtsSource {
         DIALOGUE,
         FLOATING,
-        TEST
+        TEST,
+        SPECULATIVE
     }
 
     @Inject
     private Client client;
 
+    @Inject
+    private ClientThread clientThread;
+
     @Inject
     private CharacterTTSConfig config;
 
@@ -51,23 +60,41 @@ public class CharacterTTSPlugin extends Plugin {
     @Inject
     private ConfigManager configManager;
 
+    private static final int TTS_THREADS = 4;
+    // Sentences of a long line prepared ahead of the one playing
+    private static final int SENTENCES_AHEAD = 2;
+
     private NavigationButton navButton;
 
     private final Map<Integer, String> overheadCache = new HashMap<>();
-    private final Map<String, Long> lastPlayedMap = new HashMap<>();
 
-    private boolean dialogueActive = false;
+    private DialogueState dialogueState = DialogueState.CLOSED;
+    // Counts state changes, so a deferred close can tell whether another dialogue has opened since
+    private int dialogueTransitions = 0;
+    // Advanced whenever dialogue is skipped or closed; lines from older generations never play
+    private final AtomicLong dialogueGeneration = new AtomicLong();
+    private final AtomicReference<InFlightSynthesis> inFlightDialogue = new AtomicReference<>();
     private boolean greetingPlayed = false;
 
     private final MixerService mixerService;
     private final AudioService audioService;
-
-    private static final ExecutorService ttsExecutor = Executors.newFixedThreadPool(4);
+    private final OverheadCoalescer overheadCoalescer;
+    private AudioCache audioCache;
+    private final ClipCache clipCache = new ClipCache(0);
+    private final AzureTtsEngine azureEngine = new AzureTtsEngine();
+    private LocalTtsEngine localEngine;
+    private TtsScheduler ttsScheduler;
+    private DialogueSpeculator dialogueSpeculator;
+    private GenderService genderService;
+    private CooldownTracker cooldownTracker;
+    private GenderPrefetcher genderPrefetcher;
+    private SpatialAudio spatialAudio;
 
     {
         try {
             mixerService = new MixerService();
             audioService = new AudioService(mixerService);
+            overheadCoalescer = new OverheadCoalescer(audioService);
         } catch (LineUnavailableException e) {
             throw new RuntimeException(e);
         }
@@ -75,6 +102,18 @@ public class CharacterTTSPlugin extends Plugin {
 
     @Override
     protected void startUp() throws Exception {
+        clipCache.setMaxBytes(config.memoryCacheSize() * 1024L);
+        audioCache = new AudioCache();
+        audioCache.setMaxBytes(config.diskCacheSize() * 1024L * 1024L);
+        audioService.setSilenceThreshold(config.silenceThreshold());
+        azureEngine.configure(config.azureApiKey(), config.azureRegion());
+        localEngine = new LocalTtsEngine(config);
+        ttsScheduler = new TtsScheduler(TTS_THREADS);
+        dialogueSpeculator = new DialogueSpeculator(ttsScheduler);
+        genderService = new GenderService(config);
+        cooldownTracker = new CooldownTracker(config);
+        genderPrefetcher = new GenderPrefetcher(genderService);
+        spatialAudio = new SpatialAudio(client, config);
         CharacterTTSConfigPanel panel = new CharacterTTSConfigPanel(config, this, configManager);
         BufferedImage icon = loadIcon();
         navButton = NavigationButton.builder()
@@ -90,7 +129,12 @@ public class CharacterTTSPlugin extends Plugin {
     @Override
     protected void shutDown() throws Exception {
         audioService.stopAudio();
-        ttsExecutor.shutdown();
+        dialogueSpeculator.discard();
+        ttsScheduler.shutdown();
+        audioCache.close();
+        azureEngine.close();
+        genderPrefetcher.clear();
+        genderService.shutdown();
         if (navButton != null) {
             clientToolbar.removeNavigation(navButton);
             navButton = null;
@@ -102,66 +146,260 @@ public class CharacterTTSPlugin extends Plugin {
     @Subscribe
     public void onGameStateChanged(GameStateChanged event) {
         if (event.getGameState() == GameState.LOGGED_IN && !greetingPlayed) {
+            prewarmSynthesizers();
             playCustomText(config.greeting(), config.azureVoiceName(), config.pitch(), config.volume(), TtsSource.DIALOGUE, -1);
             greetingPlayed = true;
+        } else if (event.getGameState() == GameState.LOGIN_SCREEN || event.getGameState() == GameState.HOPPING) {
+            // Interfaces are dropped wholesale here, without a close event for each
+            enterDialogueState(DialogueState.CLOSED);
+        }
+    }
+
+    @Subscribe
+    public void onConfigChanged(ConfigChanged event) {
+        if (!"charactertts".equals(event.getGroup())) {
+            return;
+        }
+        switch (event.getKey()) {
+            case "memoryCacheSize":
+                clipCache.setMaxBytes(config.memoryCacheSize() * 1024L);
+                break;
+            case "diskCacheSize":
+                audioCache.setMaxBytes(config.diskCacheSize() * 1024L * 1024L);
+                break;
+            case "silenceThreshold":
+                audioService.setSilenceThreshold(config.silenceThreshold());
+                break;
+            case "azureApiKey":
+            case "azureRegion":
+                azureEngine.configure(config.azureApiKey(), config.azureRegion());
+                prewarmSynthesizers();
+                break;
+            case "ttsEngine":
+            case "azureVoiceName":
+            case "npcMaleVoiceName":
+            case "npcFemaleVoiceName":
+                prewarmSynthesizers();
+                break;
+        }
+    }
+
+    private void prewarmSynthesizers() {
+        TtsEngine engine = activeEngine();
+        // Background preparation, like speculation: never ahead of a line that is about to play
+        ttsScheduler.execute(TtsSource.SPECULATIVE, () -> engine.prewarm(Arrays.asList(
+                config.azureVoiceName(), config.npcMaleVoiceName(), config.npcFemaleVoiceName())));
+    }
+
+    private TtsEngine activeEngine() {
+        return config.ttsEngine() == CharacterTTSConfig.Engine.LOCAL ? localEngine : azureEngine;
+    }
+
+    /**
+     * Cache key for a line; lines from the local engine never collide with Azure's.
+     */
+    private String clipKey(String voice, String safeText) {
+        String engineVoice = config.ttsEngine() == CharacterTTSConfig.Engine.LOCAL ? "local:" + voice : voice;
+        return AudioCache.key(engineVoice, safeText);
+    }
+
+    @Subscribe
+    public void onNpcSpawned(NpcSpawned event) {
+        genderPrefetcher.npcSpawned(event.getNpc());
+    }
+
+    @Subscribe
+    public void onNpcDespawned(NpcDespawned event) {
+        genderPrefetcher.npcDespawned(event.getNpc());
+    }
+
+    @Subscribe
+    public void onGameTick(GameTick event) {
+        Player localPlayer = client.getLocalPlayer();
+        if (localPlayer != null) {
+            genderPrefetcher.tick(localPlayer.getWorldLocation());
         }
+        spatialAudio.tick();
     }
 
     @Subscribe
     public void onMenuOptionClicked(MenuOptionClicked event) {
         if (event.getMenuOption().equalsIgnoreCase("Talk-to") && client.getLocalPlayer().getInteracting() instanceof NPC) {
             NPC npc = (NPC) client.getLocalPlayer().getInteracting();
-            GenderService genderService = new GenderService();
-            String gender = genderService.determineGender(npc.getId(), npc.getName());
-            log.info("Pre-cached gender for NPC {} (ID {}): {}", npc.getName(), npc.getId(), gender);
+            genderService.resolveGender(npc.getId(), npc.getName())
+                    .thenAccept(gender -> log.info("Pre-cached gender for NPC {} (ID {}): {}", npc.getName(), npc.getId(), gender));
         }
     }
 
     @Subscribe
     public void onWidgetLoaded(WidgetLoaded event) {
-        dialogueActive = true;
-        try {
-            mixerService.stopDialogueStream();
-        } catch (Exception e) {
-            log.error("Error stopping dialogue stream: ", e);
+        DialogueState loaded = DialogueState.forGroup(event.getGroupId());
+        if (loaded == null) {
+            return;
         }
-        if (event.getGroupId() == WidgetID.DIALOG_NPC_GROUP_ID) {
-            Timer timer = new Timer(200, e -> {
-                Widget dialogueWidget = client.getWidget(WidgetInfo.DIALOG_NPC_TEXT);
+        enterDialogueState(loaded);
+        if (loaded == DialogueState.NPC_TEXT) {
+            whenDialogueReady(WidgetInfo.DIALOG_NPC_TEXT, (dialogue, generation) -> {
                 Widget npcNameWidget = client.getWidget(WidgetInfo.DIALOG_NPC_NAME);
-                String dialogue = extractDialogue(dialogueWidget);
                 String npcName = npcNameWidget != null ? npcNameWidget.getText() : "";
-                if (!dialogue.isEmpty()) {
-                    if (!npcName.isEmpty() && dialogue.startsWith(npcName)) {
-                        dialogue = dialogue.substring(npcName.length()).trim();
-                        if (dialogue.startsWith(":")) {
-                            dialogue = dialogue.substring(1).trim();
-                        }
+                if (!npcName.isEmpty() && dialogue.startsWith(npcName)) {
+                    dialogue = dialogue.substring(npcName.length()).trim();
+                    if (dialogue.startsWith(":")) {
+                        dialogue = dialogue.substring(1).trim();
                     }
-                    int npcId = getNpcId();
-                    GenderService genderService = new GenderService();
-                    String gender = genderService.determineGender(npcId, npcName);
-                    String voice = "male".equals(gender) ? config.npcMaleVoiceName() : "female".equals(gender) ? config.npcFemaleVoiceName() : config.azureVoiceName();
-                    String pitch = "male".equals(gender) ? config.npcMalePitch() : "female".equals(gender) ? config.npcFemalePitch() : config.pitch();
-                    String volume = "male".equals(gender) ? config.npcMaleVolume() : "female".equals(gender) ? config.npcFemaleVolume() : config.volume();
-                    playCustomText(dialogue, voice, pitch, volume, TtsSource.DIALOGUE, npcId);
                 }
+                int npcId = getNpcId();
+                final String npcLine = dialogue;
+                CompletableFuture<String> lookup = genderService.resolveGender(npcId, npcName)
+                        .exceptionally(ex -> {
+                            log.error("Error resolving gender for {}: ", npcName, ex);
+                            return "unknown";
+                        });
+                if (lookup.isDone()) {
+                    // Known gender: speak this frame rather than waiting for the next tick
+                    playNpcLine(npcLine, npcId, lookup.join());
+                    return;
+                }
+                lookup.thenAccept(gender -> clientThread.invokeLater(() -> {
+                    if (generation != dialogueGeneration.get()) {
+                        return; // Skipped while the wiki was answering
+                    }
+                    playNpcLine(npcLine, npcId, gender);
+                }));
             });
-            timer.setRepeats(false);
-            timer.start();
         } else if (event.getGroupId() == WidgetID.DIALOG_PLAYER_GROUP_ID) {
-            Timer timer = new Timer(200, e -> {
-                Widget dialogueWidget = client.getWidget(WidgetInfo.DIALOG_PLAYER_TEXT);
-                String dialogue = extractDialogue(dialogueWidget);
-                if (!dialogue.isEmpty()) {
-                    playCustomText(dialogue, config.azureVoiceName(), config.pitch(), config.volume(), TtsSource.DIALOGUE, client.getLocalPlayer().getId());
+            whenDialogueReady(WidgetInfo.DIALOG_PLAYER_TEXT, (dialogue, generation) ->
+                    playCustomText(dialogue, config.azureVoiceName(), config.pitch(), config.volume(), TtsSource.DIALOGUE, client.getLocalPlayer().getId()));
+        } else if (event.getGroupId() == WidgetID.DIALOG_OPTION_GROUP_ID && config.speculativeDialogue()) {
+            // Options are filled in after the widget loads; retry on each client tick until they are
+            clientThread.invokeLater(() -> {
+                Widget optionsWidget = client.getWidget(WidgetInfo.DIALOG_OPTION_OPTIONS);
+                if (optionsWidget == null || optionsWidget.isHidden()) {
+                    return true;
                 }
+                List<String> options = extractOptions(optionsWidget);
+                if (options.isEmpty()) {
+                    return false;
+                }
+                speculateOptions(options);
+                return true;
             });
-            timer.setRepeats(false);
-            timer.start();
         }
     }
 
+    @Subscribe
+    public void onWidgetClosed(WidgetClosed event) {
+        DialogueState closed = dialogueState;
+        if (closed == DialogueState.CLOSED || event.getGroupId() != closed.getGroupId()) {
+            return;
+        }
+        // Moving between dialogues closes one group just before loading the next; only close
+        // for real if nothing has opened by the end of the tick
+        int transitions = dialogueTransitions;
+        clientThread.invokeLater(() -> {
+            if (dialogueTransitions == transitions) {
+                enterDialogueState(DialogueState.CLOSED);
+            }
+        });
+    }
+
+    /**
+     * Moves the dialogue lifecycle to {@code next}. Leaving a spoken line, or loading another one
+     * in its place, skips it; leaving the options for anything but the player's reply drops the
+     * speculations made for them.
+     */
+    private void enterDialogueState(DialogueState next) {
+        DialogueState previous = dialogueState;
+        if (next == previous && !next.isSpoken()) {
+            return;
+        }
+        dialogueState = next;
+        dialogueTransitions++;
+        ttsScheduler.setDialogueState(next);
+        if (previous.isSpoken()) {
+            skipDialogue();
+        }
+        if (previous == DialogueState.OPTIONS && next != DialogueState.PLAYER_TEXT) {
+            dialogueSpeculator.discard();
+        }
+        log.debug("Dialogue {} -> {}", previous, next);
+    }
+
+    /**
+     * Reads a dialogue line on the first client tick its widget has text, which is usually the
+     * tick it loads on, and hands it to {@code onReady} on the client thread. Gives up if the
+     * dialogue is closed or skipped first.
+     */
+    private void whenDialogueReady(WidgetInfo textWidget, BiConsumer<String, Long> onReady) {
+        final long generation = dialogueGeneration.get();
+        clientThread.invokeLater(() -> {
+            if (generation != dialogueGeneration.get()) {
+                return true;
+            }
+            Widget dialogueWidget = client.getWidget(textWidget);
+            if (dialogueWidget == null || dialogueWidget.isHidden()) {
+                return true;
+            }
+            String dialogue = extractDialogue(dialogueWidget);
+            if (dialogue.isEmpty()) {
+                return false;
+            }
+            onReady.accept(dialogue, generation);
+            return true;
+        });
+    }
+
+    private void playNpcLine(String npcLine, int npcId, String gender) {
+        String voice = "male".equals(gender) ? config.npcMaleVoiceName() : "female".equals(gender) ? config.npcFemaleVoiceName() : config.azureVoiceName();
+        String pitch = "male".equals(gender) ? config.npcMalePitch() : "female".equals(gender) ? config.npcFemalePitch() : config.pitch();
+        String volume = "male".equals(gender) ? config.npcMaleVolume() : "female".equals(gender) ? config.npcFemaleVolume() : config.volume();
+        playCustomText(npcLine, voice, pitch, volume, TtsSource.DIALOGUE, npcId);
+    }
+
+    /**
+     * Prepares every option in the player's voice, keyed exactly as {@link #playCustomText}
+     * will look the chosen line up. Lines already cached in memory or on disk are skipped.
+     */
+    private void speculateOptions(List<String> options) {
+        String voice = config.azureVoiceName();
+        Map<String, Callable<byte[]>> clips = new LinkedHashMap<>();
+        for (String option : options) {
+            String safeText = SsmlBuilder.sanitize(option);
+            String clipKey = clipKey(voice, safeText);
+            clips.put(clipKey, () -> {
+                if (clipCache.contains(clipKey) || (config.diskAudioCache() && audioCache.contains(clipKey))) {
+                    return null;
+                }
+                try (PcmSource pcmSource = activeEngine().synthesize(safeText, new VoiceProfile(voice))) {
+                    if (!dialogueSpeculator.register(clipKey, pcmSource)) {
+                        return null;
+                    }
+                    try {
+                        byte[] pcm = audioService.readAudio(pcmSource);
+                        // Cached even if another option is picked, so the line is free if it comes up again
+                        return pcm != null ? storeClip(clipKey, pcm) : null;
+                    } finally {
+                        dialogueSpeculator.unregister(clipKey, pcmSource);
+                    }
+                }
+            });
+        }
+        dialogueSpeculator.speculate(clips);
+    }
+
+    private List<String> extractOptions(Widget optionsWidget) {
+        List<String> options = new ArrayList<>();
+        Widget[] children = optionsWidget.getDynamicChildren();
+        // The first child is the "Select an Option" title
+        for (int i = 1; i < children.length; i++) {
+            String text = children[i].getText();
+            if (text != null && !text.trim().isEmpty()) {
+                options.add(text);
+            }
+        }
+        return options;
+    }
+
     @Subscribe
     public void onChatMessage(ChatMessage event) {
         if (event.getType() == ChatMessageType.ITEM_EXAMINE ||
@@ -181,7 +419,7 @@ public class CharacterTTSPlugin extends Plugin {
         Actor actor = event.getActor();
         String overhead = event.getOverheadText();
         if (overhead == null || overhead.trim().isEmpty() ||
-                (dialogueActive && config.blockFloatingTextWhileDialogue())) return;
+                (dialogueState != DialogueState.CLOSED && config.blockFloatingTextWhileDialogue())) return;
 
 
         if (actor instanceof Player) {
@@ -194,77 +432,40 @@ public class CharacterTTSPlugin extends Plugin {
                 log.info("Playing player floating text: " + overhead);
             } else {
                 // Other players with distance attenuation
-                WorldPoint targetLoc = player.getWorldLocation();
-                String attenuation = getProximityAttenuation(player, config.volume());
-                playCustomText(overhead, config.azureVoiceName(), config.pitch(), attenuation,
-                        TtsSource.FLOATING, playerId);
+                playCustomText(overhead, config.azureVoiceName(), config.pitch(), config.volume(),
+                        TtsSource.FLOATING, playerId, player);
                 log.info("Playing other player floating text: " + overhead);
             }
         } else if (actor instanceof NPC) {
             NPC npc = (NPC) actor;
             if (npc.getId() == getNpcId()) return; // Skip active NPC (dialogue)
-            WorldPoint npcLoc = npc.getWorldLocation();
-            GenderService genderService = new GenderService();
-            String gender = genderService.determineGender(npc.getId(), npc.getName());
+            // Never wait on the wiki for an overhead: use what is cached and let the lookup finish in the background
+            String cachedGender = genderService.getCachedGender(npc.getId(), npc.getName());
+            String gender = genderService.resolveGender(npc.getId(), npc.getName())
+                    .getNow(cachedGender != null ? cachedGender : "unknown");
             String voice = "male".equals(gender) ? config.npcMaleVoiceName() : "female".equals(gender) ? config.npcFemaleVoiceName() : config.azureVoiceName();
             String pitch = "male".equals(gender) ? config.npcMalePitch() : "female".equals(gender) ? config.npcFemalePitch() : config.pitch();
-            String baseVolume = "male".equals(gender) ? config.npcMaleVolume() : "female".equals(gender) ? config.npcFemaleVolume() : config.volume();
-            String attenuation = getProximityAttenuation(npc, baseVolume);
-            playCustomText(overhead, voice, pitch, attenuation, TtsSource.FLOATING, npc.getId());
+            String volume = "male".equals(gender) ? config.npcMaleVolume() : "female".equals(gender) ? config.npcFemaleVolume() : config.volume();
+            playCustomText(overhead, voice, pitch, volume, TtsSource.FLOATING, npc.getId(), npc);
             log.info("Playing NPC floating text: " + overhead);
         }
     }
 
-    @Subscribe
-    public void onClientTick(ClientTick event) {
-        Widget dialogueWidgetPlayer = client.getWidget(WidgetInfo.DIALOG_PLAYER_TEXT);
-        Widget dialogueWidgetNPC = client.getWidget(WidgetInfo.DIALOG_NPC_TEXT);
-        Widget dialogueWidgetOption = client.getWidget(WidgetInfo.DIALOG_OPTION);
-
-        dialogueActive = (dialogueWidgetPlayer != null && dialogueWidgetPlayer.getBounds().height > 0) ||
-                (dialogueWidgetNPC != null && dialogueWidgetNPC.getBounds().height > 0) ||
-                (dialogueWidgetOption != null && dialogueWidgetOption.getBounds().height > 0);
-        if (!dialogueActive) {
-            try {
-                mixerService.stopDialogueStream();
-            } catch (Exception e) {
-                log.error("Error stopping dialogue stream: ", e);
-            }
-        }
-    }
-
-    private String getProximityAttenuation(Actor target, String baseVolumeStr) {
-        WorldPoint playerLoc = client.getLocalPlayer().getWorldLocation();
-        WorldPoint targetLoc = target.getWorldLocation();
-        int distance = playerLoc.distanceTo(targetLoc);
-        double ratio = distance >= config.maxDistance() ? config.minVolumeRatio() :
-                config.minVolumeRatio() + (1.0 - ((double) distance / config.maxDistance())) * (config.maxVolumeRatio() - config.minVolumeRatio());
-        try {
-            double baseVolume = parseVolume(baseVolumeStr);
-            double effectiveVolume = baseVolume * ratio;
-            double attenuation = effectiveVolume - 100.0;
-            return (int) attenuation + "%";
-        } catch (Exception e) {
-            log.error("Error computing proximity attenuation: {}", e.getMessage());
-            return baseVolumeStr;
+    /**
+     * Starts a new dialogue generation: silences the current line, stops its synthesis, and
+     * makes any older line still on its way get dropped before it reaches the mixer.
+     */
+    private void skipDialogue() {
+        long generation = dialogueGeneration.incrementAndGet();
+        mixerService.stopDialogueStream(generation);
+        InFlightSynthesis inFlight = inFlightDialogue.get();
+        if (inFlight != null && inFlight.generation < generation) {
+            inFlight.cancel();
         }
     }
 
-    private double parseVolume(String volumeStr) {
-        if (volumeStr.equalsIgnoreCase("default")) return 100.0;
-        if (volumeStr.equalsIgnoreCase("silent")) return 0.0;
-        try {
-            if (volumeStr.startsWith("-")) {
-                return 100.0 - Double.parseDouble(volumeStr.substring(1).replace("%", "").trim());
-            } else if (volumeStr.startsWith("+")) {
-                return 100.0 + Double.parseDouble(volumeStr.substring(1).replace("%", "").trim());
-            } else {
-                return Double.parseDouble(volumeStr.replace("%", "").trim());
-            }
-        } catch (Exception e) {
-            log.error("Error parsing volume string '{}': {}", volumeStr, e.getMessage());
-            return 100.0;
-        }
+    private boolean isStale(TtsSource source, long generation) {
+        return source == TtsSource.DIALOGUE && generation != dialogueGeneration.get();
     }
 
     private String extractDialogue(Widget dialogueWidget) {
@@ -284,43 +485,59 @@ public class CharacterTTSPlugin extends Plugin {
     }
 
     public void playCustomText(String text, String voice, String pitch, String volume, TtsSource source, int sourceId) {
-        final String safeText = text.replaceAll("(?i)<br\\s*/?>", " ").trim();
-        String cacheKey = sourceId + ":" + safeText;
-        long now = System.currentTimeMillis();
-        if (lastPlayedMap.containsKey(cacheKey) && (now - lastPlayedMap.get(cacheKey)) < config.playbackCooldown()) {
+        playCustomText(text, voice, pitch, volume, source, sourceId, null);
+    }
+
+    /**
+     * @param speaker actor floating text follows as they move, or {@code null} to play it centred
+     *                without distance falloff; dialogue is always centred
+     */
+    public void playCustomText(String text, String voice, String pitch, String volume, TtsSource source, int sourceId, Actor speaker) {
+        final String safeText = SsmlBuilder.sanitize(text);
+        if (!cooldownTracker.tryPlay(sourceId, safeText, source == TtsSource.FLOATING)) {
             return;
         }
-        lastPlayedMap.put(cacheKey, now);
+        final String clipKey = clipKey(voice, safeText);
+        final double gain = MixCore.volumeGain(volume);
+        final double pitchRatio = PitchShifter.ratio(pitch);
+        if (source == TtsSource.FLOATING) {
+            playFloatingText(clipKey, voice, safeText, spatialAudio.emitter(speaker, gain, pitchRatio));
+            return;
+        }
+        final Future<byte[]> speculation = source == TtsSource.DIALOGUE ? dialogueSpeculator.claim(clipKey) : null;
+        final long generation = dialogueGeneration.get();
 
-        ttsExecutor.submit(() -> {
+        ttsScheduler.execute(source, () -> {
             try {
-                SpeechConfig speechConfig = SpeechConfig.fromSubscription(config.azureApiKey(), config.azureRegion());
-                speechConfig.setProperty(PropertyId.SpeechServiceConnection_EndSilenceTimeoutMs, "0");
-                speechConfig.setProperty(PropertyId.SpeechServiceResponse_RequestSentenceBoundary, "true");
-                speechConfig.setSpeechSynthesisOutputFormat(SpeechSynthesisOutputFormat.Raw16Khz16BitMonoPcm);
-                speechConfig.setSpeechSynthesisVoiceName(voice);
-
-                String ssml = "<speak version=\"1.0\" xml:lang=\"en-US\">" +
-                        "<voice name=\"" + voice + "\">" +
-                        "<prosody pitch=\"" + pitch + "\" volume=\"" + volume + "\">" +
-                        safeText +
-                        "</prosody></voice></speak>";
-
-                AudioOutputStream outputStream = AudioOutputStream.createPullStream();
-                AudioConfig audioConfig = AudioConfig.fromStreamOutput(outputStream);
-                SpeechSynthesizer synthesizer = new SpeechSynthesizer(speechConfig, audioConfig);
-
-                Future<SpeechSynthesisResult> resultFuture = synthesizer.StartSpeakingSsmlAsync(ssml);
-                SpeechSynthesisResult result = resultFuture.get();
-
-                if (result.getReason() == ResultReason.SynthesizingAudioStarted || result.getReason() == ResultReason.SynthesizingAudioCompleted) {
-                    AudioDataStream audioDataStream = AudioDataStream.fromResult(result);
-                    audioService.playStreamingAudio(audioDataStream, source);
-                } else {
-                    log.error("Speech synthesis failed with reason: {}", result.getReason());
-                    client.addChatMessage(ChatMessageType.GAMEMESSAGE, "", "TTS failed: " + result.getReason(), null);
+                if (isStale(source, generation)) {
+                    return;
+                }
+                byte[] cached = clipCache.get(clipKey);
+                if (cached == null && speculation != null) {
+                    // Never wait behind the speculations that were just cancelled
+                    ttsScheduler.runIfQueued(speculation);
+                    cached = DialogueSpeculator.await(speculation);
+                }
+                if (cached == null) {
+                    cached = loadClip(clipKey);
+                }
+                if (cached != null) {
+                    audioService.playCachedAudio(cached, source, generation, gain, pitchRatio);
+                    return;
+                }
+
+                List<String> sentences = SentenceSplitter.split(safeText);
+                if (sentences.size() > 1) {
+                    // Each sentence is cached on its own; the whole line is not
+                    play(() -> openSentences(voice, sentences, source), source, generation,
+                            stream -> audioService.playStreamingAudio(stream, source, generation, gain, pitchRatio));
+                    return;
+                }
+                byte[] pcm = synthesize(voice, safeText, source, generation,
+                        stream -> audioService.playStreamingAudio(stream, source, generation, gain, pitchRatio));
+                if (pcm != null) {
+                    storeClip(clipKey, pcm);
                 }
-                synthesizer.close();
             } catch (Exception e) {
                 log.error("Error in TTS execution: ", e);
                 client.addChatMessage(ChatMessageType.GAMEMESSAGE, "", "TTS failed: " + e.getMessage(), null);
@@ -328,11 +545,190 @@ public class CharacterTTSPlugin extends Plugin {
         });
     }
 
+    /**
+     * Plays floating text, sharing the synthesis with every other speaker currently saying the
+     * same words in the same voice. Each speaker still gets its own stream at its own position.
+     */
+    private void playFloatingText(String clipKey, String voice, String safeText, SpatialAudio.Emitter emitter) {
+        long maxAge = config.floatingTextMaxAge() * 1000L;
+        OverheadCoalescer.Line line = overheadCoalescer.join(clipKey, emitter, maxAge);
+        if (line == null) {
+            return;
+        }
+        line.setTask(ttsScheduler.execute(TtsSource.FLOATING, maxAge, () -> {
+            if (!line.begin()) {
+                return;
+            }
+            try {
+                byte[] cached = clipCache.get(clipKey);
+                if (cached == null) {
+                    cached = loadClip(clipKey);
+                }
+                if (cached != null) {
+                    line.start(PcmBroadcast.completed(cached));
+                    return;
+                }
+                PcmBroadcast broadcast = audioService.newBroadcast();
+                line.start(broadcast);
+                byte[] pcm = synthesize(voice, safeText, TtsSource.FLOATING, 0,
+                        stream -> audioService.streamAudio(stream, broadcast));
+                if (pcm != null) {
+                    storeClip(clipKey, pcm);
+                }
+            } catch (Exception e) {
+                log.error("Error in TTS execution: ", e);
+                client.addChatMessage(ChatMessageType.GAMEMESSAGE, "", "TTS failed: " + e.getMessage(), null);
+            } finally {
+                line.finish();
+            }
+        }));
+    }
+
+    /**
+     * Synthesizes one line on the active engine, handing the audio to {@code consumer}, which
+     * either plays it as it arrives or just collects it. Dialogue synthesis is registered so
+     * skipping the line can stop it.
+     *
+     * @return the complete PCM, or {@code null} if the line was cut short
+     */
+    private byte[] synthesize(String voice, String text, TtsSource source, long generation,
+                              Function<PcmSource, byte[]> consumer) throws Exception {
+        return play(() -> activeEngine().synthesize(text, new VoiceProfile(voice)), source, generation, consumer);
+    }
+
+    /**
+     * Opens a source and hands it to {@code consumer}, registering dialogue so skipping the line
+     * can stop it.
+     */
+    private byte[] play(Callable<PcmSource> opener, TtsSource source, long generation,
+                        Function<PcmSource, byte[]> consumer) throws Exception {
+        try (PcmSource pcmSource = opener.call()) {
+            InFlightSynthesis inFlight = null;
+            if (source == TtsSource.DIALOGUE) {
+                inFlight = new InFlightSynthesis(generation, pcmSource);
+                inFlightDialogue.set(inFlight);
+                if (isStale(source, generation)) {
+                    // Skipped while the engine was starting
+                    pcmSource.cancel();
+                }
+            }
+            try {
+                return consumer.apply(pcmSource);
+            } finally {
+                if (inFlight != null) {
+                    inFlightDialogue.compareAndSet(inFlight, null);
+                }
+            }
+        }
+    }
+
+    /**
+     * Plays a long line sentence by sentence. The first sentence streams from the engine while
+     * the next few are prepared in parallel behind it; every sentence is cached on its own, so
+     * lines sharing a sentence share its audio.
+     */
+    private PcmSource openSentences(String voice, List<String> sentences, TtsSource source) throws Exception {
+        List<Callable<byte[]>> clips = new ArrayList<>();
+        String first = sentences.get(0);
+        String firstKey = clipKey(voice, first);
+        byte[] firstCached = cachedClip(firstKey);
+        if (firstCached != null) {
+            clips.add(() -> firstCached);
+        }
+        for (String sentence : sentences.subList(1, sentences.size())) {
+            clips.add(() -> prepareClip(clipKey(voice, sentence), voice, sentence));
+        }
+        // Opened before the others are queued, so the first sentence always starts first
+        PcmSource live = firstCached == null ? activeEngine().synthesize(first, new VoiceProfile(voice)) : null;
+        return new SegmentedPcmSource(ttsScheduler, source, SENTENCES_AHEAD, live, pcm -> storeClip(firstKey, pcm), clips);
+    }
+
+    /**
+     * @return the clip from the cache, or synthesized in full and stored; {@code null} if
+     * synthesis was cut short
+     */
+    private byte[] prepareClip(String clipKey, String voice, String text) throws Exception {
+        byte[] cached = cachedClip(clipKey);
+        if (cached != null) {
+            return cached;
+        }
+        try (PcmSource pcmSource = activeEngine().synthesize(text, new VoiceProfile(voice))) {
+            byte[] pcm = audioService.readAudio(pcmSource);
+            return pcm != null ? storeClip(clipKey, pcm) : null;
+        }
+    }
+
+    private byte[] cachedClip(String clipKey) {
+        byte[] cached = clipCache.get(clipKey);
+        return cached != null ? cached : loadClip(clipKey);
+    }
+
+    /**
+     * @return the clip from the disk cache, promoted to memory, or {@code null} on a miss
+     */
+    private byte[] loadClip(String clipKey) {
+        if (!config.diskAudioCache()) {
+            return null;
+        }
+        byte[] pcm = audioCache.load(clipKey);
+        if (pcm != null) {
+            clipCache.put(clipKey, pcm);
+        }
+        return pcm;
+    }
+
+    /**
+     * Trims the clip's leading and trailing silence once, so every later play starts at the voice.
+     *
+     * @return the clip as stored
+     */
+    private byte[] storeClip(String clipKey, byte[] pcm) {
+        byte[] trimmed = SilenceTrimmer.trim(pcm, SilenceTrimmer.threshold(config.silenceThreshold()));
+        clipCache.put(clipKey, trimmed);
+        if (config.diskAudioCache()) {
+            audioCache.store(clipKey, trimmed);
+        }
+        return trimmed;
+    }
+
+    public TtsScheduler getTtsScheduler() {
+        return ttsScheduler;
+    }
+
+    public ClipCache getClipCache() {
+        return clipCache;
+    }
+
+    public GenderService getGenderService() {
+        return genderService;
+    }
+
+    public MixerService getMixerService() {
+        return mixerService;
+    }
+
     private int getNpcId() {
         Actor interacting = client.getLocalPlayer() != null ? client.getLocalPlayer().getInteracting() : null;
         return interacting instanceof NPC ? ((NPC) interacting).getId() : -1;
     }
 
+    /**
+     * The line currently being synthesized for dialogue, so skipping can stop it.
+     */
+    private static class InFlightSynthesis {
+        private final long generation;
+        private final PcmSource pcmSource;
+
+        private InFlightSynthesis(long generation, PcmSource pcmSource) {
+            this.generation = generation;
+            this.pcmSource = pcmSource;
+        }
+
+        private void cancel() {
+            pcmSource.cancel();
+        }
+    }
+
     @Provides
     CharacterTTSConfig provideConfig(ConfigManager configManager) {
         return configManager.getConfig(CharacterTTSConfig.class);
@@ -0,0 +1,72 @@
+package com.digitalsauce;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * In-memory LRU tier of recently played PCM clips, bounded by total byte size.
+ * Cached arrays are shared between every playback of the clip and must never be written to.
+ */
+public class ClipCache {
+    private final LinkedHashMap<String, byte[]> clips = new LinkedHashMap<>(64, 0.75f, true);
+    private long maxBytes;
+    private long residentBytes = 0;
+    private long hits = 0;
+    private long misses = 0;
+
+    public ClipCache(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    public synchronized byte[] get(String key) {
+        byte[] pcm = clips.get(key);
+        if (pcm != null) {
+            hits++;
+        } else {
+            misses++;
+        }
+        return pcm;
+    }
+
+    /**
+     * Checks for a clip without touching its recency or the hit ratio.
+     */
+    public synchronized boolean contains(String key) {
+        return clips.containsKey(key);
+    }
+
+    public synchronized void put(String key, byte[] pcm) {
+        if (pcm.length > maxBytes) {
+            return;
+        }
+        byte[] previous = clips.put(key, pcm);
+        if (previous != null) {
+            residentBytes -= previous.length;
+        }
+        residentBytes += pcm.length;
+        evict();
+    }
+
+    public synchronized void setMaxBytes(long maxBytes) {
+        this.maxBytes = maxBytes;
+        evict();
+    }
+
+    public synchronized long getResidentBytes() {
+        return residentBytes;
+    }
+
+    public synchronized double getHitRatio() {
+        long lookups = hits + misses;
+        return lookups == 0 ? 0.0 : (double) hits / lookups;
+    }
+
+    private void evict() {
+        Iterator<Map.Entry<String, byte[]>> it = clips.entrySet().iterator();
+        while (residentBytes > maxBytes && it.hasNext()) {
+            residentBytes -= it.next().getValue().length;
+            it.remove();
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.digitalsauce;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Decides whether a line may be played, safe to call from the client thread and the EDT alike.
+ * A speaker repeating the same text within the playback cooldown is ignored; entries are swept
+ * once their cooldown has passed, so the map only ever holds recent lines. Rate-limited lines
+ * must also take a token from the speaker's bucket and from a global bucket, which refill at
+ * the configured lines per minute.
+ */
+public class CooldownTracker {
+    private static final long SWEEP_INTERVAL_MS = 10_000;
+    private static final int SPEAKER_BURST = 3;
+    private static final int GLOBAL_BURST = 10;
+
+    private final CharacterTTSConfig config;
+    private final LongSupplier clock;
+    private final Map<String, Long> lastPlayed = new ConcurrentHashMap<>();
+    private final AtomicLong lastSweep = new AtomicLong();
+    // Guarded by this
+    private final Map<Integer, TokenBucket> speakerBuckets = new HashMap<>();
+    private final TokenBucket globalBucket = new TokenBucket(0);
+
+    public CooldownTracker(CharacterTTSConfig config) {
+        this(config, System::currentTimeMillis);
+    }
+
+    /**
+     * Reads the time in milliseconds from {@code clock} instead of the system clock.
+     */
+    CooldownTracker(CharacterTTSConfig config, LongSupplier clock) {
+        this.config = config;
+        this.clock = clock;
+    }
+
+    /**
+     * Records the line as played if it is allowed.
+     *
+     * @param rateLimited whether the line counts against the per-speaker and global rate limits
+     * @return {@code false} if the line is still cooling down or over a rate limit
+     */
+    public boolean tryPlay(int speakerId, String text, boolean rateLimited) {
+        long now = clock.getAsLong();
+        long cooldown = config.playbackCooldown();
+        sweep(now, cooldown);
+
+        String key = speakerId + ":" + text;
+        Long previous = lastPlayed.get(key);
+        if (previous != null && now - previous < cooldown) {
+            return false;
+        }
+        if (rateLimited && !takeTokens(speakerId, now)) {
+            return false;
+        }
+        // Two threads racing on the same line: only the one that installs its timestamp plays it
+        return previous == null ? lastPlayed.putIfAbsent(key, now) == null : lastPlayed.replace(key, previous, now);
+    }
+
+    private synchronized boolean takeTokens(int speakerId, long now) {
+        int speakerRate = config.speakerLinesPerMinute();
+        int globalRate = config.globalLinesPerMinute();
+        TokenBucket speaker = speakerBuckets.computeIfAbsent(speakerId, k -> new TokenBucket(now));
+        speaker.refill(now, speakerRate, SPEAKER_BURST);
+        globalBucket.refill(now, globalRate, GLOBAL_BURST);
+        boolean speakerOk = speakerRate == 0 || speaker.tokens >= 1;
+        boolean globalOk = globalRate == 0 || globalBucket.tokens >= 1;
+        if (!speakerOk || !globalOk) {
+            return false;
+        }
+        if (speakerRate != 0) {
+            speaker.tokens -= 1;
+        }
+        if (globalRate != 0) {
+            globalBucket.tokens -= 1;
+        }
+        return true;
+    }
+
+    private void sweep(long now, long cooldown) {
+        long last = lastSweep.get();
+        if (now - last < SWEEP_INTERVAL_MS || !lastSweep.compareAndSet(last, now)) {
+            return;
+        }
+        lastPlayed.values().removeIf(playedAt -> now - playedAt >= cooldown);
+        synchronized (this) {
+            int speakerRate = config.speakerLinesPerMinute();
+            Iterator<TokenBucket> it = speakerBuckets.values().iterator();
+            while (it.hasNext()) {
+                TokenBucket bucket = it.next();
+                bucket.refill(now, speakerRate, SPEAKER_BURST);
+                // A full bucket behaves exactly like a new one
+                if (bucket.tokens >= SPEAKER_BURST) {
+                    it.remove();
+                }
+            }
+        }
+    }
+
+    private static class TokenBucket {
+        private double tokens;
+        private long refilledAt;
+
+        private TokenBucket(long now) {
+            // Clamped to the burst size on the first refill, so new buckets start full
+            this.tokens = Integer.MAX_VALUE;
+            this.refilledAt = now;
+        }
+
+        private void refill(long now, int perMinute, int burst) {
+            tokens = Math.min(burst, tokens + (now - refilledAt) * perMinute / 60_000.0);
+            refilledAt = now;
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.digitalsauce;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+/**
+ * Synthesizes the visible dialogue options ahead of time, so whichever one the player picks can
+ * play as soon as their line appears. Speculations run in the {@link TtsScheduler}'s speculative
+ * class, below dialogue, and are kept in memory, keyed like {@link ClipCache}; claiming one
+ * cancels and drops all the others. A speculation registers its engine source once open, so
+ * cancelling it stops the synthesis itself and not just the worker waiting on it.
+ */
+@Slf4j
+public class DialogueSpeculator {
+    private final TtsScheduler scheduler;
+    private final Map<String, Future<byte[]>> pending = new HashMap<>();
+    private final Map<String, PcmSource> sources = new HashMap<>();
+    // The speculation handed to dialogue, which must outlive the cancellation of the others
+    private String claimed;
+
+    public DialogueSpeculator(TtsScheduler scheduler) {
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * Replaces the current speculations with one per option, in on-screen order.
+     *
+     * @param clips loader per clip key; a loader may return {@code null} when there is nothing to prepare
+     */
+    public synchronized void speculate(Map<String, Callable<byte[]>> clips) {
+        discard();
+        claimed = null;
+        for (Map.Entry<String, Callable<byte[]>> clip : clips.entrySet()) {
+            pending.put(clip.getKey(), scheduler.submit(CharacterTTSPlugin.TtsSource.SPECULATIVE, clip.getValue()));
+        }
+        log.debug("Speculating {} dialogue options", clips.size());
+    }
+
+    /**
+     * Takes the speculation for {@code key}, if any, and cancels every other one.
+     */
+    public synchronized Future<byte[]> claim(String key) {
+        Future<byte[]> speculation = pending.remove(key);
+        sources.remove(key);
+        discard();
+        claimed = speculation != null ? key : null;
+        return speculation;
+    }
+
+    public synchronized void discard() {
+        for (Future<byte[]> future : pending.values()) {
+            future.cancel(true);
+        }
+        pending.clear();
+        for (PcmSource source : sources.values()) {
+            source.cancel();
+        }
+        sources.clear();
+    }
+
+    /**
+     * Called by a speculation once its engine source is open, so discarding it can stop the engine.
+     *
+     * @return {@code false} if the speculation was discarded already; the caller should not go on
+     */
+    public synchronized boolean register(String key, PcmSource source) {
+        if (key.equals(claimed)) {
+            return true;
+        }
+        if (!pending.containsKey(key)) {
+            return false;
+        }
+        sources.put(key, source);
+        return true;
+    }
+
+    public synchronized void unregister(String key, PcmSource source) {
+        sources.remove(key, source);
+    }
+
+    /**
+     * Waits for a claimed speculation to finish.
+     *
+     * @return its PCM, or {@code null} if it failed, was cancelled or had nothing to prepare
+     */
+    public static byte[] await(Future<byte[]> speculation) throws InterruptedException {
+        try {
+            return speculation.get();
+        } catch (CancellationException e) {
+            return null;
+        } catch (ExecutionException e) {
+            log.warn("Speculative synthesis failed: ", e.getCause());
+            return null;
+        }
+    }
+}
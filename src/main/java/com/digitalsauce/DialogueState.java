@@ -0,0 +1,43 @@
+package com.digitalsauce;
+
+import net.runelite.api.widgets.WidgetID;
+
+/**
+ * Which chatbox dialogue is open. The plugin moves between these on widget load and close
+ * events rather than by inspecting widgets every frame.
+ */
+public enum DialogueState {
+    CLOSED(-1),
+    NPC_TEXT(WidgetID.DIALOG_NPC_GROUP_ID),
+    PLAYER_TEXT(WidgetID.DIALOG_PLAYER_GROUP_ID),
+    OPTIONS(WidgetID.DIALOG_OPTION_GROUP_ID);
+
+    private final int groupId;
+
+    DialogueState(int groupId) {
+        this.groupId = groupId;
+    }
+
+    public int getGroupId() {
+        return groupId;
+    }
+
+    /**
+     * Whether this state shows a line that is spoken aloud.
+     */
+    public boolean isSpoken() {
+        return this == NPC_TEXT || this == PLAYER_TEXT;
+    }
+
+    /**
+     * @return the state shown by widget group {@code groupId}, or {@code null} if it is not a dialogue
+     */
+    public static DialogueState forGroup(int groupId) {
+        for (DialogueState state : values()) {
+            if (state != CLOSED && state.groupId == groupId) {
+                return state;
+            }
+        }
+        return null;
+    }
+}
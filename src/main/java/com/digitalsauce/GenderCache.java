@@ -1,71 +1,282 @@
 package com.digitalsauce;
 
 import com.google.gson.Gson;
+import com.google.gson.JsonElement;
 import com.google.gson.JsonSyntaxException;
 import com.google.gson.reflect.TypeToken;
 import lombok.extern.slf4j.Slf4j;
 
 import java.io.*;
 import java.lang.reflect.Type;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * NPC gender cache persisted as a JSON snapshot plus an append-only change journal.
+ * Updates only queue a one-line journal record; a background flusher appends queued records
+ * every few seconds. The journal is folded into a new snapshot on {@link #close()} or once it
+ * grows past {@link #MAX_JOURNAL_ENTRIES}, and is replayed on top of the snapshot at startup,
+ * so changes made before a crash survive it. Records carry a sequence number and the snapshot
+ * the last one it includes, so a journal that outlives a crash mid-compaction is not replayed
+ * over the newer snapshot.
+ */
 @Slf4j
 public class GenderCache {
     private static final String CACHE_DIR = System.getProperty("user.home") + File.separator + ".runelite" + File.separator + "charactertts";
-    private static final String CACHE_FILE = CACHE_DIR + File.separator + "genderCache.json";
+    private static final long FLUSH_INTERVAL_SECONDS = 2;
+    private static final int MAX_JOURNAL_ENTRIES = 5000;
 
+    private final File cacheDir;
+    private final File cacheFile;
+    private final File journalFile;
     private final Map<String, GenderCacheEntry> cache;
     private final Gson gson;
+    private final Queue<JournalRecord> pending = new ConcurrentLinkedQueue<>();
+    private final ScheduledExecutorService flusher;
+    private int journalEntries = 0;
+    // Orders updates against snapshots; held while a record is numbered and applied
+    private final Object sequenceLock = new Object();
+    private long sequence = 0;
+    private long snapshotSequence = 0;
 
     public GenderCache() {
+        this(new File(CACHE_DIR));
+    }
+
+    /**
+     * Keeps the snapshot and journal in {@code cacheDir} instead of the RuneLite folder.
+     */
+    GenderCache(File cacheDir) {
+        this.cacheDir = cacheDir;
+        this.cacheFile = new File(cacheDir, "genderCache.json");
+        this.journalFile = new File(cacheDir, "genderCache.journal");
         gson = new Gson();
-        cache = new HashMap<>();
+        cache = new ConcurrentHashMap<>();
         loadCache();
+        replayJournal();
+        flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "GenderCacheFlusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(this::flush, FLUSH_INTERVAL_SECONDS, FLUSH_INTERVAL_SECONDS, TimeUnit.SECONDS);
     }
 
     private void loadCache() {
-        File file = new File(CACHE_FILE);
-        if (file.exists()) {
-            try (Reader reader = new FileReader(file)) {
+        if (cacheFile.exists()) {
+            try (Reader reader = new FileReader(cacheFile)) {
                 Type type = new TypeToken<HashMap<String, GenderCacheEntry>>(){}.getType();
-                Map<String, GenderCacheEntry> loaded = gson.fromJson(reader, type);
+                JsonElement json = gson.fromJson(reader, JsonElement.class);
+                Map<String, GenderCacheEntry> loaded = null;
+                if (json != null && json.isJsonObject() && json.getAsJsonObject().has("entries")) {
+                    Snapshot snapshot = gson.fromJson(json, Snapshot.class);
+                    snapshotSequence = snapshot.sequence;
+                    sequence = snapshot.sequence;
+                    loaded = snapshot.entries;
+                } else if (json != null) {
+                    // Snapshots from before sequence numbers are the bare map
+                    loaded = gson.fromJson(json, type);
+                }
                 if (loaded != null) {
-                    cache.putAll(loaded);
+                    for (Map.Entry<String, GenderCacheEntry> loadedEntry : loaded.entrySet()) {
+                        GenderCacheEntry entry = loadedEntry.getValue();
+                        Map<Integer, String> idMapping = entry.getIdGenderMapping();
+                        entry.setIdGenderMapping(idMapping != null ? new ConcurrentHashMap<>(idMapping) : new ConcurrentHashMap<>());
+                        cache.put(loadedEntry.getKey(), entry);
+                    }
                 }
                 log.info("Loaded gender cache with {} entries", cache.size());
-            } catch (IOException | JsonSyntaxException e) {
+            } catch (IOException | JsonSyntaxException | IllegalStateException e) {
                 log.error("Error loading gender cache, resetting: ", e);
                 cache.clear();
                 saveCache();
             }
         } else {
-            new File(CACHE_DIR).mkdirs();
+            cacheDir.mkdirs();
         }
     }
 
-    public void saveCache() {
-        try (Writer writer = new FileWriter(CACHE_FILE)) {
-            gson.toJson(cache, writer);
+    private void replayJournal() {
+        if (!journalFile.exists()) {
+            return;
+        }
+        try (BufferedReader reader = Files.newBufferedReader(journalFile.toPath(), StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                try {
+                    JournalRecord record = gson.fromJson(line, JournalRecord.class);
+                    if (record != null && record.name != null) {
+                        journalEntries++;
+                        if (record.sequence != null) {
+                            sequence = Math.max(sequence, record.sequence);
+                            if (record.sequence <= snapshotSequence) {
+                                continue; // Already folded into the snapshot
+                            }
+                        }
+                        apply(record);
+                    }
+                } catch (JsonSyntaxException e) {
+                    // A torn final line from a crash mid-append; everything before it is intact
+                    log.warn("Skipping unreadable gender journal record: {}", line);
+                }
+            }
+            log.info("Replayed {} gender journal records", journalEntries);
+        } catch (IOException e) {
+            log.error("Error replaying gender journal: ", e);
+            return;
+        }
+        try {
+            truncateTornRecord();
+        } catch (IOException e) {
+            log.error("Error truncating torn gender journal record: ", e);
+        }
+    }
+
+    /**
+     * Cuts the journal back to the end of its last complete line, so the next append starts on a
+     * line of its own instead of joining a record torn by a crash.
+     */
+    private void truncateTornRecord() throws IOException {
+        try (FileChannel channel = FileChannel.open(journalFile.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long size = channel.size();
+            long keep = size;
+            ByteBuffer last = ByteBuffer.allocate(1);
+            while (keep > 0) {
+                last.clear();
+                channel.read(last, keep - 1);
+                if (last.get(0) == '\n') {
+                    break;
+                }
+                keep--;
+            }
+            if (keep < size) {
+                channel.truncate(keep);
+                log.warn("Truncated {} bytes of torn gender journal record", size - keep);
+            }
+        }
+    }
+
+    /**
+     * Writes the full snapshot. Only compaction and recovery call this; updates go through the journal.
+     */
+    public synchronized void saveCache() {
+        File tmp = new File(cacheDir, cacheFile.getName() + ".tmp");
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(tmp), StandardCharsets.UTF_8)) {
+            synchronized (sequenceLock) {
+                gson.toJson(new Snapshot(sequence, cache), writer);
+            }
         } catch (IOException e) {
             log.error("Error saving gender cache: ", e);
+            return;
+        }
+        try {
+            Files.move(tmp.toPath(), cacheFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            log.error("Error replacing gender cache snapshot: ", e);
+        }
+    }
+
+    /**
+     * Appends every queued record to the journal, compacting once it grows too large.
+     */
+    public synchronized void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(journalFile, true), StandardCharsets.UTF_8))) {
+            JournalRecord record;
+            while ((record = pending.poll()) != null) {
+                writer.write(gson.toJson(record));
+                writer.write('\n');
+                journalEntries++;
+            }
+        } catch (IOException e) {
+            log.error("Error appending to gender journal: ", e);
+        }
+        if (journalEntries > MAX_JOURNAL_ENTRIES) {
+            compact();
+        }
+    }
+
+    private synchronized void compact() {
+        saveCache();
+        if (journalFile.exists() && !journalFile.delete()) {
+            log.error("Error truncating gender journal");
+            return;
         }
+        journalEntries = 0;
+        log.info("Compacted gender cache with {} entries", cache.size());
+    }
+
+    /**
+     * Flushes outstanding changes and folds the journal into the snapshot.
+     */
+    public void close() {
+        flusher.shutdown();
+        synchronized (this) {
+            flush();
+            if (journalEntries > 0) {
+                compact();
+            }
+        }
+    }
+
+    int size() {
+        return cache.size();
     }
 
     public GenderCacheEntry getEntry(String npcName) {
         return cache.get(npcName);
     }
 
-    public void setDefaultGender(String npcName, String gender) {
-        GenderCacheEntry entry = cache.computeIfAbsent(npcName, k -> new GenderCacheEntry());
-        entry.setDefaultGender(gender);
-        saveCache();
+    /**
+     * Records a wiki lookup result, which expires based on {@code fetchedAt}.
+     */
+    public void setDefaultGender(String npcName, String gender, long fetchedAt) {
+        record(new JournalRecord(npcName, null, gender, fetchedAt, false));
+    }
+
+    /**
+     * Records a manual override, which never expires.
+     */
+    public void overrideDefaultGender(String npcName, String gender) {
+        record(new JournalRecord(npcName, null, gender, System.currentTimeMillis(), true));
     }
 
     public void setGenderForId(String npcName, int npcId, String gender) {
-        GenderCacheEntry entry = cache.computeIfAbsent(npcName, k -> new GenderCacheEntry());
-        entry.getIdGenderMapping().put(npcId, gender);
-        saveCache();
+        record(new JournalRecord(npcName, npcId, gender, null, null));
+    }
+
+    private void record(JournalRecord record) {
+        synchronized (sequenceLock) {
+            record.sequence = ++sequence;
+            apply(record);
+            // Queued in sequence order, so replay applies them in the same order
+            pending.add(record);
+        }
+    }
+
+    private void apply(JournalRecord record) {
+        GenderCacheEntry entry = cache.computeIfAbsent(record.name, k -> new GenderCacheEntry());
+        if (record.npcId == null) {
+            entry.setDefaultGender(record.gender);
+            entry.setFetchedAt(record.fetchedAt != null ? record.fetchedAt : 0);
+            entry.setPinned(record.pinned != null && record.pinned);
+        } else {
+            entry.getIdGenderMapping().put(record.npcId, record.gender);
+        }
     }
 
     public String getDefaultGender(String npcName) {
@@ -79,8 +290,11 @@ public class GenderCache {
     }
 
     public static class GenderCacheEntry {
-        private String defaultGender = "unknown";
-        private Map<Integer, String> idGenderMapping = new HashMap<>();
+        private volatile String defaultGender = "unknown";
+        private volatile Map<Integer, String> idGenderMapping = new ConcurrentHashMap<>();
+        // Entries from before TTLs were tracked load as 0 and are refreshed on next use
+        private volatile long fetchedAt = 0;
+        private volatile boolean pinned = false;
 
         public String getDefaultGender() {
             return defaultGender;
@@ -97,5 +311,53 @@ public class GenderCache {
         public void setIdGenderMapping(Map<Integer, String> idGenderMapping) {
             this.idGenderMapping = idGenderMapping;
         }
+
+        public long getFetchedAt() {
+            return fetchedAt;
+        }
+
+        public void setFetchedAt(long fetchedAt) {
+            this.fetchedAt = fetchedAt;
+        }
+
+        public boolean isPinned() {
+            return pinned;
+        }
+
+        public void setPinned(boolean pinned) {
+            this.pinned = pinned;
+        }
+    }
+
+    private static class Snapshot {
+        // The last journal record folded into this snapshot
+        private long sequence;
+        private Map<String, GenderCacheEntry> entries;
+
+        private Snapshot(long sequence, Map<String, GenderCacheEntry> entries) {
+            this.sequence = sequence;
+            this.entries = entries;
+        }
+    }
+
+    /**
+     * One journal line: a default gender when {@code npcId} is null, otherwise an id mapping.
+     */
+    private static class JournalRecord {
+        private String name;
+        private Integer npcId;
+        private String gender;
+        private Long fetchedAt;
+        private Boolean pinned;
+        // Missing from records written before sequence numbers; those always replay
+        private Long sequence;
+
+        private JournalRecord(String name, Integer npcId, String gender, Long fetchedAt, Boolean pinned) {
+            this.name = name;
+            this.npcId = npcId;
+            this.gender = gender;
+            this.fetchedAt = fetchedAt;
+            this.pinned = pinned;
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,79 @@
+package com.digitalsauce;
+
+import lombok.extern.slf4j.Slf4j;
+import net.runelite.api.NPC;
+import net.runelite.api.coords.WorldPoint;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Resolves genders for named NPCs as they spawn, so the voice is already known when one speaks.
+ * Spawned NPCs are queued on the client thread and released once per game tick, nearest to the
+ * player first, skipping names the cache can already answer. At most
+ * {@link #MAX_OUTSTANDING} lookups are in flight at once; the rest wait for a later tick.
+ */
+@Slf4j
+public class GenderPrefetcher {
+    private static final int MAX_OUTSTANDING = 50;
+
+    private final GenderService genderService;
+    // Keyed by NPC index; only touched on the client thread
+    private final Map<Integer, NPC> queued = new HashMap<>();
+    private final AtomicInteger outstanding = new AtomicInteger();
+
+    public GenderPrefetcher(GenderService genderService) {
+        this.genderService = genderService;
+    }
+
+    public void npcSpawned(NPC npc) {
+        String name = npc.getName();
+        if (name != null && !name.isEmpty() && !"null".equals(name)) {
+            queued.put(npc.getIndex(), npc);
+        }
+    }
+
+    public void npcDespawned(NPC npc) {
+        queued.remove(npc.getIndex());
+    }
+
+    public void clear() {
+        queued.clear();
+    }
+
+    public void tick(WorldPoint playerLocation) {
+        if (queued.isEmpty() || playerLocation == null) {
+            return;
+        }
+        List<NPC> nearestFirst = new ArrayList<>(queued.values());
+        nearestFirst.sort(Comparator.comparingInt(npc -> playerLocation.distanceTo(npc.getWorldLocation())));
+
+        Set<String> submitted = new HashSet<>();
+        for (NPC npc : nearestFirst) {
+            String name = npc.getName();
+            if (!genderService.needsLookup(npc.getId(), name)) {
+                queued.remove(npc.getIndex());
+                continue;
+            }
+            if (outstanding.get() >= MAX_OUTSTANDING) {
+                break;
+            }
+            queued.remove(npc.getIndex());
+            if (!submitted.add(name)) {
+                continue;
+            }
+            outstanding.incrementAndGet();
+            genderService.resolveGender(npc.getId(), name)
+                    .whenComplete((gender, ex) -> outstanding.decrementAndGet());
+        }
+        if (!submitted.isEmpty()) {
+            log.debug("Prefetching genders for {} NPCs", submitted.size());
+        }
+    }
+}
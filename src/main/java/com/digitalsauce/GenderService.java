@@ -1,8 +1,5 @@
 package com.digitalsauce;
 
-import com.google.gson.Gson;
-import com.google.gson.JsonArray;
-import com.google.gson.JsonObject;
 import lombok.extern.slf4j.Slf4j;
 import okhttp3.OkHttpClient;
 import okhttp3.Request;
@@ -11,136 +8,193 @@ import okhttp3.Response;
 import java.io.IOException;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
-import java.util.HashSet;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * Plugin-scoped NPC gender lookup. The cache is loaded once and kept in memory; wiki queries
+ * and cache writes run on a background executor so callers on the client thread never block.
+ * Lookup results expire after a configurable TTL, with a shorter one for "unknown" results,
+ * and concurrent lookups for the same name share a single wiki request. Names needing a
+ * lookup are collected for a short window and resolved together in one query of up to
+ * {@link #MAX_TITLES_PER_QUERY} titles.
+ */
 @Slf4j
 public class GenderService {
     private static final String OSRS_WIKI_API_URL =
-            "https://oldschool.runescape.wiki/api.php?action=query&format=json&prop=revisions&rvprop=content&titles=";
+            "https://oldschool.runescape.wiki/api.php?action=query&format=json&prop=revisions&rvprop=content&rvsection=0&redirects=1&titles=";
+    private static final int MAX_TITLES_PER_QUERY = 50;
+    private static final long BATCH_WINDOW_MS = 100;
     private final OkHttpClient httpClient;
-    private final Gson gson;
     private final GenderCache genderCache;
+    private final ScheduledExecutorService executor;
+    private final CharacterTTSConfig config;
+    private final ConcurrentMap<String, CompletableFuture<String>> inFlight = new ConcurrentHashMap<>();
+    private final Set<String> batch = new LinkedHashSet<>();
+    private boolean batchScheduled = false;
 
-    public GenderService() {
+    public GenderService(CharacterTTSConfig config) {
+        this.config = config;
         this.httpClient = new OkHttpClient();
-        this.gson = new Gson();
         this.genderCache = new GenderCache();
+        this.executor = Executors.newScheduledThreadPool(2, r -> {
+            Thread thread = new Thread(r, "GenderService");
+            thread.setDaemon(true);
+            return thread;
+        });
     }
 
-    public String determineGender(int npcId, String npcName) {
-        GenderCache.GenderCacheEntry entry = genderCache.getEntry(npcName);
-        if (entry == null) {
-            String computed = determineGenderFromWiki(npcName);
-            genderCache.setDefaultGender(npcName, computed);
-            if (npcId != -1) {
-                genderCache.setGenderForId(npcName, npcId, computed);
-            }
-            return computed;
-        } else {
-            if (npcId != -1) {
-                String idGender = genderCache.getGenderForId(npcName, npcId);
-                if (idGender != null) {
-                    return idGender;
-                }
+    /**
+     * Resolves the gender off the calling thread. The future is already complete when an
+     * id-specific mapping or an unexpired lookup is cached; otherwise it joins the in-flight
+     * wiki request for the name, queueing the name for the next batch if there is none.
+     */
+    public CompletableFuture<String> resolveGender(int npcId, String npcName) {
+        String fresh = getFreshGender(npcId, npcName);
+        if (fresh != null) {
+            return CompletableFuture.completedFuture(fresh);
+        }
+        CompletableFuture<String> promise = new CompletableFuture<>();
+        CompletableFuture<String> existing = inFlight.putIfAbsent(npcName, promise);
+        if (existing != null) {
+            return existing;
+        }
+        synchronized (batch) {
+            batch.add(npcName);
+            if (!batchScheduled) {
+                batchScheduled = true;
+                executor.schedule(this::flushBatch, BATCH_WINDOW_MS, TimeUnit.MILLISECONDS);
             }
-            String defaultGender = entry.getDefaultGender();
-            String computed = determineGenderFromWiki(npcName);
-            if (!defaultGender.equals(computed)) {
-                genderCache.setDefaultGender(npcName, computed);
+        }
+        return promise;
+    }
+
+    private void flushBatch() {
+        List<String> names;
+        synchronized (batch) {
+            names = new ArrayList<>(batch);
+            batch.clear();
+            batchScheduled = false;
+        }
+        for (int start = 0; start < names.size(); start += MAX_TITLES_PER_QUERY) {
+            List<String> chunk = names.subList(start, Math.min(names.size(), start + MAX_TITLES_PER_QUERY));
+            Map<String, String> results = null;
+            try {
+                results = determineGendersFromWiki(chunk);
+            } catch (RuntimeException e) {
+                log.error("Error parsing OSRS Wiki response for NPCs: {}", chunk, e);
             }
-            if (npcId != -1) {
-                genderCache.setGenderForId(npcName, npcId, computed);
+            for (String npcName : chunk) {
+                String gender = recordLookup(npcName, results != null ? results.get(npcName) : null);
+                // The cache is updated before the entry is removed, so late callers hit the cache
+                CompletableFuture<String> promise = inFlight.remove(npcName);
+                if (promise != null) {
+                    promise.complete(gender);
+                }
             }
-            return computed;
         }
     }
 
-    public void overrideGender(String npcName, int npcId, String gender) {
+    /**
+     * @return the best cached gender for the NPC without any I/O, expired or not, or {@code null} if never resolved
+     */
+    public String getCachedGender(int npcId, String npcName) {
         if (npcId != -1) {
-            genderCache.setGenderForId(npcName, npcId, gender);
-        } else {
-            genderCache.setDefaultGender(npcName, gender);
+            String idGender = genderCache.getGenderForId(npcName, npcId);
+            if (idGender != null) {
+                return idGender;
+            }
         }
+        return genderCache.getDefaultGender(npcName);
     }
 
-    private String determineGenderFromWiki(String npcName) {
-        try {
-            String encodedName = URLEncoder.encode(npcName, StandardCharsets.UTF_8.toString());
-            String url = OSRS_WIKI_API_URL + encodedName;
-            Request request = new Request.Builder().url(url).build();
-            Response response = httpClient.newCall(request).execute();
-            if (!response.isSuccessful()) {
-                log.error("Unexpected response code {} for NPC: {}", response.code(), npcName);
-                return "unknown";
-            }
-            String responseBody = response.body().string();
-            JsonObject json = gson.fromJson(responseBody, JsonObject.class);
-            JsonObject query = json.getAsJsonObject("query");
-            if (query == null) return "unknown";
-            JsonObject pages = query.getAsJsonObject("pages");
-            if (pages == null || pages.entrySet().isEmpty()) return "unknown";
-            JsonObject page = pages.entrySet().iterator().next().getValue().getAsJsonObject();
-            if (page.has("missing")) {
-                return "unknown";
-            }
-            JsonArray revisions = page.getAsJsonArray("revisions");
-            if (revisions == null || revisions.size() == 0) return "unknown";
-            JsonObject revision = revisions.get(0).getAsJsonObject();
-            String content = revision.has("*") ? revision.get("*").getAsString() : "";
-            if (content.isEmpty()) return "unknown";
+    /**
+     * @return whether resolving this NPC would need a wiki request that is not already in flight
+     */
+    public boolean needsLookup(int npcId, String npcName) {
+        return getFreshGender(npcId, npcName) == null && !inFlight.containsKey(npcName);
+    }
 
-            String variantResult = determineGenderFromVariants(content);
-            if (!"unknown".equals(variantResult)) return variantResult;
+    public void shutdown() {
+        executor.shutdownNow();
+        genderCache.close();
+    }
 
-            String cleanedText = content.replaceAll("\\{\\{.*?\\}\\}", " ");
-            String lowerText = cleanedText.toLowerCase();
-            int maleScore = countOccurrences(lowerText, "\\bhe\\b") +
-                    countOccurrences(lowerText, "\\bhim\\b") +
-                    countOccurrences(lowerText, "\\bhis\\b");
-            int femaleScore = countOccurrences(lowerText, "\\bshe\\b") +
-                    countOccurrences(lowerText, "\\bher\\b") +
-                    countOccurrences(lowerText, "\\bhers\\b");
-            if (maleScore > 0 && femaleScore == 0) return "male";
-            else if (femaleScore > 0 && maleScore == 0) return "female";
-            else if (maleScore == 0 && femaleScore == 0) return "unknown";
-            else {
-                int diff = Math.abs(maleScore - femaleScore);
-                double ratio = Math.max(maleScore, femaleScore) / (double) Math.min(maleScore, femaleScore);
-                if (diff >= 2 && ratio >= 1.5) {
-                    return maleScore > femaleScore ? "male" : "female";
-                } else {
-                    return "unknown";
-                }
+    private String getFreshGender(int npcId, String npcName) {
+        if (npcId != -1) {
+            String idGender = genderCache.getGenderForId(npcName, npcId);
+            if (idGender != null) {
+                return idGender;
             }
-        } catch (IOException e) {
-            log.error("Error querying OSRS Wiki for NPC: {}", npcName, e);
-            return "unknown";
         }
+        GenderCache.GenderCacheEntry entry = genderCache.getEntry(npcName);
+        if (entry == null) {
+            return null;
+        }
+        String gender = entry.getDefaultGender();
+        long ttl = "unknown".equals(gender)
+                ? TimeUnit.HOURS.toMillis(config.genderNegativeCacheHours())
+                : TimeUnit.DAYS.toMillis(config.genderCacheDays());
+        return entry.isPinned() || System.currentTimeMillis() - entry.getFetchedAt() < ttl ? gender : null;
     }
 
-    private String determineGenderFromVariants(String content) {
-        String[] sections = content.split("\\n\\s*\\n");
-        HashSet<String> genders = new HashSet<>();
-        Pattern pattern = Pattern.compile("(?i)gender\\s*[:=\\t-]*\\s*(\\w+)");
-        for (String section : sections) {
-            Matcher matcher = pattern.matcher(section);
-            if (matcher.find()) {
-                String gender = matcher.group(1).trim().toLowerCase();
-                if (gender.equals("male") || gender.equals("female")) {
-                    genders.add(gender);
-                }
-            }
+    private String recordLookup(String npcName, String computed) {
+        if (computed == null) {
+            // Transport failure: keep whatever was cached so the next request retries
+            String cached = genderCache.getDefaultGender(npcName);
+            return cached != null ? cached : "unknown";
         }
-        return genders.size() == 1 ? genders.iterator().next() : "unknown";
+        genderCache.setDefaultGender(npcName, computed, System.currentTimeMillis());
+        return computed;
+    }
+
+    public void overrideGender(String npcName, int npcId, String gender) {
+        executor.execute(() -> {
+            if (npcId != -1) {
+                genderCache.setGenderForId(npcName, npcId, gender);
+            } else {
+                genderCache.overrideDefaultGender(npcName, gender);
+            }
+        });
     }
 
-    private int countOccurrences(String text, String regex) {
-        int count = 0;
-        Pattern pattern = Pattern.compile(regex);
-        Matcher matcher = pattern.matcher(text);
-        while (matcher.find()) count++;
-        return count;
+    /**
+     * Queries all {@code npcNames} at once.
+     *
+     * @return the classified gender per requested name, "unknown" for pages that are missing or
+     * inconclusive, or {@code null} if the wiki could not be reached
+     */
+    private Map<String, String> determineGendersFromWiki(List<String> npcNames) {
+        StringBuilder titles = new StringBuilder();
+        try {
+            for (String npcName : npcNames) {
+                if (titles.length() > 0) {
+                    titles.append("%7C");
+                }
+                titles.append(URLEncoder.encode(npcName, StandardCharsets.UTF_8.toString()));
+            }
+        } catch (IOException e) {
+            return null;
+        }
+        Request request = new Request.Builder().url(OSRS_WIKI_API_URL + titles).build();
+        try (Response response = httpClient.newCall(request).execute()) {
+            if (!response.isSuccessful()) {
+                log.error("Unexpected response code {} for NPCs: {}", response.code(), npcNames);
+                return null;
+            }
+            return WikiGenderClassifier.classifyResponse(response.body().charStream(), npcNames);
+        } catch (IOException e) {
+            log.error("Error querying OSRS Wiki for NPCs: {}", npcNames, e);
+            return null;
+        }
     }
-}
\ No newline at end of file
+}
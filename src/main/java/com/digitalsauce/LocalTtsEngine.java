@@ -0,0 +1,125 @@
+package com.digitalsauce;
+
+import java.util.Collection;
+
+/**
+ * Offline backend that needs no key or network: every word becomes a short voiced tone, with
+ * the fundamental taken from the voice name. Output depends only on the text and
+ * profile, so cache keys behave as with Azure. First-chunk latency, chunk size and the delay
+ * between chunks are configurable to mimic a remote service when load-testing the pipeline.
+ */
+public class LocalTtsEngine implements TtsEngine {
+    private static final int SAMPLE_RATE = 16000;
+    private static final double[] HARMONICS = {1.0, 0.5, 0.35, 0.2};
+    private static final double BASE_AMPLITUDE = 0.25 * Short.MAX_VALUE;
+    private static final int WORD_BASE_MS = 80;
+    private static final int LETTER_MS = 45;
+    private static final int GAP_MS = 60;
+
+    private final CharacterTTSConfig config;
+
+    public LocalTtsEngine(CharacterTTSConfig config) {
+        this.config = config;
+    }
+
+    @Override
+    public PcmSource synthesize(String text, VoiceProfile profile) throws InterruptedException {
+        byte[] pcm = render(text, profile);
+        Thread.sleep(config.localLatencyMs());
+        return new LocalPcmSource(pcm, Math.max(2, config.localChunkBytes() & ~1), config.localChunkDelayMs());
+    }
+
+    @Override
+    public void prewarm(Collection<String> voices) {
+    }
+
+    @Override
+    public void close() {
+    }
+
+    static byte[] render(String text, VoiceProfile profile) {
+        // Spread voices over a plausible speaking range, 95..225 Hz
+        double f0 = 95 + Math.floorMod(profile.getVoice().hashCode(), 131);
+
+        String[] words = text.trim().split("\\s+");
+        int totalSamples = 0;
+        for (String word : words) {
+            totalSamples += samples(WORD_BASE_MS + LETTER_MS * word.length()) + samples(GAP_MS);
+        }
+        byte[] pcm = new byte[totalSamples * 2];
+        int pos = 0;
+        for (int w = 0; w < words.length; w++) {
+            int wordSamples = samples(WORD_BASE_MS + LETTER_MS * words[w].length());
+            // Each word glides slightly, falling towards the end of the sentence
+            double wordF0 = f0 * (1.0 + 0.08 * Math.sin(w * 1.7)) * (1.0 - 0.1 * w / words.length);
+            for (int i = 0; i < wordSamples; i++) {
+                double envelope = Math.sin(Math.PI * i / wordSamples);
+                double t = (double) i / SAMPLE_RATE;
+                double value = 0;
+                for (int h = 0; h < HARMONICS.length; h++) {
+                    value += HARMONICS[h] * Math.sin(2 * Math.PI * wordF0 * (h + 1) * t);
+                }
+                int sample = (int) Math.round(value / 2.05 * envelope * BASE_AMPLITUDE);
+                sample = Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, sample));
+                pcm[pos++] = (byte) sample;
+                pcm[pos++] = (byte) (sample >> 8);
+            }
+            pos += samples(GAP_MS) * 2;
+        }
+        return pcm;
+    }
+
+    private static int samples(int millis) {
+        return SAMPLE_RATE * millis / 1000;
+    }
+
+    private static class LocalPcmSource implements PcmSource {
+        private final byte[] pcm;
+        private final int chunkBytes;
+        private final int chunkDelayMs;
+        private int position = 0;
+        private volatile boolean cancelled = false;
+
+        private LocalPcmSource(byte[] pcm, int chunkBytes, int chunkDelayMs) {
+            this.pcm = pcm;
+            this.chunkBytes = chunkBytes;
+            this.chunkDelayMs = chunkDelayMs;
+        }
+
+        @Override
+        public int read(byte[] buffer) {
+            if (cancelled || position >= pcm.length) {
+                return 0;
+            }
+            int intoChunk = position % chunkBytes;
+            if (intoChunk == 0 && position > 0 && chunkDelayMs > 0) {
+                try {
+                    Thread.sleep(chunkDelayMs);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    cancelled = true;
+                    return 0;
+                }
+            }
+            // Never hand out more than what is left of the current chunk
+            int n = Math.min(Math.min(buffer.length & ~1, chunkBytes - intoChunk), pcm.length - position);
+            System.arraycopy(pcm, position, buffer, 0, n);
+            position += n;
+            return n;
+        }
+
+        @Override
+        public boolean isComplete() {
+            return !cancelled && position >= pcm.length;
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package com.digitalsauce;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+/**
+ * Allocation-free mixing core that places 16-bit little-endian mono streams into a stereo
+ * output block. Each stream is scaled by its own left and right Q15 gains and summed into int
+ * accumulators, so loud overlaps cannot wrap and the level of one stream does not jump when
+ * another starts or stops. A gain change is ramped linearly across the block instead of
+ * stepping, which would click. The sums are then passed through a soft-knee limiter that is
+ * linear up to the headroom threshold and approaches full scale asymptotically above it.
+ * <p>
+ * One instance belongs to one mixing thread; call {@link #begin()}, {@link #mix} per stream,
+ * then {@link #finish()} for each block.
+ */
+public class MixCore {
+    /** Bytes of mono input read from each stream per block. */
+    public static final int BLOCK_BYTES = 1024;
+    public static final int BLOCK_SAMPLES = BLOCK_BYTES / 2;
+    /** Bytes of interleaved stereo output per block. */
+    public static final int OUTPUT_BLOCK_BYTES = BLOCK_SAMPLES * 4;
+    public static final int UNITY_GAIN = 1 << 15;
+    // Twice unity still cannot overflow sample * gain in an int
+    public static final double MAX_GAIN = 2.0;
+
+    private static final int BLOCK_SHIFT = Integer.numberOfTrailingZeros(BLOCK_SAMPLES);
+
+    private static final int FULL_SCALE = Short.MAX_VALUE;
+    // Samples below -6 dBFS pass through untouched; the limiter only shapes the top half
+    private static final int LIMITER_THRESHOLD = FULL_SCALE / 2;
+    private static final int LIMITER_KNEE = FULL_SCALE - LIMITER_THRESHOLD;
+
+    private final int[] left = new int[BLOCK_SAMPLES];
+    private final int[] right = new int[BLOCK_SAMPLES];
+    private final byte[] readBuffer = new byte[BLOCK_BYTES];
+    private final byte[] output = new byte[OUTPUT_BLOCK_BYTES];
+    private int activeStreams = 0;
+
+    public void begin() {
+        Arrays.fill(left, 0);
+        Arrays.fill(right, 0);
+        activeStreams = 0;
+    }
+
+    /**
+     * Adds up to one block from {@code stream} into the accumulators. A short read only
+     * contributes the samples it returned; the rest of the block is left as it was.
+     *
+     * @return bytes read, 0 if the stream had nothing buffered, or -1 at end of stream
+     */
+    public int mix(InputStream stream) throws IOException {
+        return mix(stream, UNITY_GAIN);
+    }
+
+    /**
+     * Mixes the stream centred, at the same gain on both channels.
+     *
+     * @param gain Q15 gain, {@link #UNITY_GAIN} for unchanged samples
+     */
+    public int mix(InputStream stream, int gain) throws IOException {
+        return mix(stream, gain, gain, gain, gain);
+    }
+
+    /**
+     * Mixes the stream with its gains moving from the {@code from} pair at the start of the block
+     * to the {@code to} pair at its end. All gains are Q15.
+     */
+    public int mix(InputStream stream, int fromLeft, int fromRight, int toLeft, int toRight) throws IOException {
+        int bytesRead = stream.read(readBuffer, 0, BLOCK_BYTES);
+        mix(readBuffer, bytesRead, fromLeft, fromRight, toLeft, toRight);
+        return bytesRead;
+    }
+
+    /**
+     * Mixes {@code length} bytes of samples already read, such as a block a stream gathered over
+     * several reads.
+     */
+    public void mix(byte[] block, int length, int fromLeft, int fromRight, int toLeft, int toRight) {
+        if (length > 0) {
+            int samples = length >> 1;
+            if (fromLeft == toLeft && fromRight == toRight) {
+                for (int i = 0, b = 0; i < samples; i++, b += 2) {
+                    int sample = (short) ((block[b] & 0xff) | (block[b + 1] << 8));
+                    left[i] += (sample * toLeft) >> 15;
+                    right[i] += (sample * toRight) >> 15;
+                }
+            } else {
+                int deltaLeft = toLeft - fromLeft;
+                int deltaRight = toRight - fromRight;
+                for (int i = 0, b = 0; i < samples; i++, b += 2) {
+                    int sample = (short) ((block[b] & 0xff) | (block[b + 1] << 8));
+                    left[i] += (sample * (fromLeft + ((deltaLeft * i) >> BLOCK_SHIFT))) >> 15;
+                    right[i] += (sample * (fromRight + ((deltaRight * i) >> BLOCK_SHIFT))) >> 15;
+                }
+            }
+            activeStreams++;
+        }
+    }
+
+    public int getActiveStreams() {
+        return activeStreams;
+    }
+
+    /**
+     * Limits and encodes the accumulated block. The returned array is reused by the next call.
+     */
+    public byte[] finish() {
+        for (int i = 0, b = 0; i < BLOCK_SAMPLES; i++, b += 4) {
+            int l = limit(left[i]);
+            int r = limit(right[i]);
+            output[b] = (byte) l;
+            output[b + 1] = (byte) (l >> 8);
+            output[b + 2] = (byte) r;
+            output[b + 3] = (byte) (r >> 8);
+        }
+        return output;
+    }
+
+    /**
+     * Converts a linear gain to Q15, clamped to 0..{@link #MAX_GAIN}.
+     */
+    public static int toQ15(double gain) {
+        return (int) Math.round(Math.max(0.0, Math.min(MAX_GAIN, gain)) * UNITY_GAIN);
+    }
+
+    /**
+     * Converts a volume setting as used by the config and panel ("default", "silent",
+     * "+20%", "-50%", or an absolute percentage such as "80") to a linear gain, where
+     * "default" is 1. The SSML names x-soft to x-loud are accepted as well.
+     */
+    public static double volumeGain(String volume) {
+        if (volume == null) {
+            return 1.0;
+        }
+        String trimmed = volume.trim().toLowerCase();
+        switch (trimmed) {
+            case "":
+            case "default":
+            case "medium":
+                return 1.0;
+            case "silent":
+                return 0.0;
+            case "x-soft":
+                return 0.25;
+            case "soft":
+                return 0.5;
+            case "loud":
+                return 1.5;
+            case "x-loud":
+                return MAX_GAIN;
+        }
+        try {
+            double percent = Double.parseDouble(trimmed.replace("%", "").replace("+", ""));
+            boolean relative = trimmed.startsWith("+") || trimmed.startsWith("-");
+            return Math.max(0.0, Math.min(MAX_GAIN, (relative ? 100 + percent : percent) / 100.0));
+        } catch (NumberFormatException e) {
+            return 1.0;
+        }
+    }
+
+    static int limit(int sample) {
+        int magnitude = sample < 0 ? -sample : sample;
+        if (magnitude <= LIMITER_THRESHOLD) {
+            return sample;
+        }
+        long over = magnitude - LIMITER_THRESHOLD;
+        int limited = LIMITER_THRESHOLD + (int) (over * LIMITER_KNEE / (over + LIMITER_KNEE));
+        return sample < 0 ? -limited : limited;
+    }
+}
@@ -2,26 +2,47 @@ package com.digitalsauce;
 
 import javax.sound.sampled.*;
 import java.io.IOException;
-import java.util.Iterator;
-import java.util.LinkedList;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+/**
+ * Real-time mixer. Producers never touch the stream registry directly: add/stop requests are
+ * posted to a multi-producer command queue that the mixer thread drains at the start of each
+ * block, so the mixer never waits on a lock and producers never wait behind mixer I/O.
+ * Streams themselves are non-blocking ({@link PcmRingBuffer} or in-memory clips).
+ * <p>
+ * Clips are synthesized mono at a neutral level and pitch, so one clip serves a voice at every
+ * pitch and volume setting; the mixer shifts each one to its speaker's pitch and places it in
+ * the stereo output with its own gain and pan, which callers may move while it plays.
+ * <p>
+ * Dialogue commands carry a generation. Stopping dialogue advances it, and a dialogue stream
+ * from an older generation is closed on arrival instead of replacing the current line.
+ */
 public class MixerService {
     private static final Logger log = LoggerFactory.getLogger(MixerService.class);
-    private final AudioFormat format = new AudioFormat(16000, 16, 1, true, false);
-    private final List<AudioInputStream> floatingStreams = new LinkedList<>();
-    private AudioInputStream dialogueStream = null;
-    private final Object lock = new Object();
+    // Blocking writes into a short device buffer pace the mixer without sleeping
+    private static final int LINE_BUFFER_BLOCKS = 4;
+
+    private final AudioFormat format = new AudioFormat(16000, 16, 2, true, false);
+    private final Queue<Command> commands = new ConcurrentLinkedQueue<>();
+    // Owned by the mixer thread
+    private final List<MixerStream> floatingStreams = new ArrayList<>();
+    private MixerStream dialogueStream = null;
+    private long dialogueGeneration = 0;
     private SourceDataLine line;
     private Thread mixerThread;
     private volatile boolean running = false;
+    private volatile long streamUnderruns = 0;
+    private volatile long outputUnderruns = 0;
 
     public MixerService() throws LineUnavailableException {
         DataLine.Info info = new DataLine.Info(SourceDataLine.class, format);
         line = (SourceDataLine) AudioSystem.getLine(info);
-        line.open(format);
+        line.open(format, MixCore.OUTPUT_BLOCK_BYTES * LINE_BUFFER_BLOCKS);
         line.start();
         running = true;
         mixerThread = new Thread(this::mixLoop, "AudioMixerThread");
@@ -29,130 +50,139 @@ public class MixerService {
         log.info("MixerService started with format: {}", format);
     }
 
-    public void addFloatingAudio(AudioInputStream stream) {
-        synchronized (lock) {
-            floatingStreams.add(stream);
-            log.info("Floating audio added. Total floating streams: {}", floatingStreams.size());
-        }
+    /**
+     * @param gain linear gain, 1 for the clip as synthesized
+     * @param pan stereo position in -1..1; the returned handle can move both while the stream plays
+     * @param pitch frequency ratio to shift the clip by, 1 for the pitch it was synthesized at
+     */
+    public MixerStream addFloatingAudio(AudioInputStream stream, double gain, double pan, double pitch) {
+        MixerStream mixerStream = new MixerStream(stream, gain, pan, pitch);
+        commands.add(new Command(CommandType.ADD_FLOATING, mixerStream, 0));
+        return mixerStream;
     }
 
-    public void addDialogueAudio(AudioInputStream stream) {
-        synchronized (lock) {
-            if (dialogueStream != null) {
-                try {
-                    dialogueStream.close();
-                } catch (IOException e) {
-                    log.error("Error closing previous dialogue stream: ", e);
-                }
+    /**
+     * Replaces the dialogue line, unless dialogue has since been stopped for a newer generation.
+     * Dialogue is always centred.
+     */
+    public void addDialogueAudio(AudioInputStream stream, long generation, double gain, double pitch) {
+        commands.add(new Command(CommandType.SET_DIALOGUE, new MixerStream(stream, gain, 0.0, pitch), generation));
+    }
+
+    /**
+     * Stops the dialogue line and rejects any later stream from before {@code generation}.
+     */
+    public void stopDialogueStream(long generation) {
+        commands.add(new Command(CommandType.STOP_DIALOGUE, null, generation));
+    }
+
+    /**
+     * Blocks where a stream that had already started playing ran dry before it ended. Waiting
+     * for a line's first audio is not counted.
+     */
+    public long getStreamUnderruns() {
+        return streamUnderruns;
+    }
+
+    /**
+     * Blocks written after the audio device had already played out everything it was given.
+     */
+    public long getOutputUnderruns() {
+        return outputUnderruns;
+    }
+
+    private void applyCommands() {
+        Command command;
+        while ((command = commands.poll()) != null) {
+            switch (command.type) {
+                case ADD_FLOATING:
+                    floatingStreams.add(command.stream);
+                    log.info("Floating audio added. Total floating streams: {}", floatingStreams.size());
+                    break;
+                case SET_DIALOGUE:
+                    if (command.generation < dialogueGeneration) {
+                        closeStream(command.stream);
+                        log.info("Discarded dialogue stream from skipped generation {}.", command.generation);
+                        break;
+                    }
+                    closeDialogueStream();
+                    dialogueStream = command.stream;
+                    log.info("Dialogue stream set.");
+                    break;
+                case STOP_DIALOGUE:
+                    dialogueGeneration = Math.max(dialogueGeneration, command.generation);
+                    if (dialogueStream != null) {
+                        closeDialogueStream();
+                        log.info("Dialogue stream stopped.");
+                    }
+                    break;
             }
-            dialogueStream = stream;
-            log.info("Dialogue stream set.");
         }
     }
 
-    public void stopDialogueStream() {
-        synchronized (lock) {
-            if (dialogueStream != null) {
-                try {
-                    dialogueStream.close();
-                    log.info("Dialogue stream stopped.");
-                } catch (IOException e) {
-                    log.error("Error stopping dialogue stream: ", e);
-                }
-                dialogueStream = null;
-            }
+    private void closeDialogueStream() {
+        if (dialogueStream != null) {
+            closeStream(dialogueStream);
+            dialogueStream = null;
+        }
+    }
+
+    private void closeStream(MixerStream stream) {
+        try {
+            stream.close();
+        } catch (IOException e) {
+            log.error("Error closing stream: ", e);
         }
     }
 
     private void mixLoop() {
-        int bufferSize = 1024;
-        byte[] mixBuffer = new byte[bufferSize];
-        byte[] tempBuffer = new byte[bufferSize];
-        int samplesPerBuffer = bufferSize / 2;
-        double bufferDurationSeconds = samplesPerBuffer / format.getSampleRate();
-        long bufferDurationMillis = (long) (bufferDurationSeconds * 1000);
+        MixCore mixCore = new MixCore();
+        long underruns = 0;
+        boolean primed = false;
 
         while (running) {
-            int activeStreams = 0;
-            short[] mixSamples = new short[samplesPerBuffer];
-
-            synchronized (lock) {
-                if (dialogueStream != null) {
-                    try {
-                        int bytesRead = dialogueStream.read(tempBuffer, 0, bufferSize);
-                        if (bytesRead == -1) {
-                            dialogueStream.close();
-                            dialogueStream = null;
-                        } else {
-                            if (bytesRead < bufferSize) {
-                                for (int i = bytesRead; i < bufferSize; i++) {
-                                    tempBuffer[i] = 0;
-                                }
-                            }
-                            activeStreams++;
-                            for (int i = 0; i < samplesPerBuffer; i++) {
-                                int low = tempBuffer[2 * i] & 0xff;
-                                int high = tempBuffer[2 * i + 1];
-                                mixSamples[i] += (short) ((high << 8) | low);
-                            }
-                        }
-                    } catch (IOException ex) {
-                        log.error("Error reading dialogue stream: ", ex);
-                        dialogueStream = null;
-                    }
-                }
+            applyCommands();
+            mixCore.begin();
 
-                Iterator<AudioInputStream> it = floatingStreams.iterator();
-                while (it.hasNext()) {
-                    AudioInputStream stream = it.next();
-                    try {
-                        int bytesRead = stream.read(tempBuffer, 0, bufferSize);
-                        if (bytesRead == -1) {
-                            stream.close();
-                            it.remove();
-                            continue;
-                        }
-                        if (bytesRead < bufferSize) {
-                            for (int i = bytesRead; i < bufferSize; i++) {
-                                tempBuffer[i] = 0;
-                            }
-                        }
-                        activeStreams++;
-                        for (int i = 0; i < samplesPerBuffer; i++) {
-                            int low = tempBuffer[2 * i] & 0xff;
-                            int high = tempBuffer[2 * i + 1];
-                            mixSamples[i] += (short) ((high << 8) | low);
-                        }
-                    } catch (IOException ex) {
-                        log.error("Error reading floating stream: ", ex);
-                        try {
-                            stream.close();
-                        } catch (IOException e) {
-                            log.error("Error closing floating stream: ", e);
-                        }
-                        it.remove();
+            if (dialogueStream != null) {
+                try {
+                    int bytesRead = dialogueStream.mixInto(mixCore);
+                    if (bytesRead == -1) {
+                        closeDialogueStream();
+                    } else if (bytesRead == 0 && dialogueStream.hasDelivered()) {
+                        underruns++;
                     }
+                } catch (IOException ex) {
+                    log.error("Error reading dialogue stream: ", ex);
+                    closeDialogueStream();
                 }
             }
 
-            if (activeStreams > 1) {
-                for (int i = 0; i < samplesPerBuffer; i++) {
-                    mixSamples[i] = (short) (mixSamples[i] / activeStreams);
+            // Indexed, back to front: finished streams are removed without an Iterator per block
+            for (int i = floatingStreams.size() - 1; i >= 0; i--) {
+                MixerStream floating = floatingStreams.get(i);
+                try {
+                    int bytesRead = floating.mixInto(mixCore);
+                    if (bytesRead == -1) {
+                        floating.close();
+                        floatingStreams.remove(i);
+                    } else if (bytesRead == 0 && floating.hasDelivered()) {
+                        underruns++;
+                    }
+                } catch (IOException ex) {
+                    log.error("Error reading floating stream: ", ex);
+                    closeStream(floating);
+                    floatingStreams.remove(i);
                 }
             }
+            streamUnderruns = underruns;
 
-            for (int i = 0; i < samplesPerBuffer; i++) {
-                mixBuffer[2 * i] = (byte) (mixSamples[i] & 0xff);
-                mixBuffer[2 * i + 1] = (byte) (mixSamples[i] >> 8 & 0xff);
+            byte[] mixBuffer = mixCore.finish();
+            if (primed && line.available() >= line.getBufferSize()) {
+                outputUnderruns++;
             }
-
+            primed = true;
             line.write(mixBuffer, 0, mixBuffer.length);
-
-            try {
-                Thread.sleep(bufferDurationMillis);
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-            }
         }
 
         line.drain();
@@ -171,4 +201,22 @@ public class MixerService {
             Thread.currentThread().interrupt();
         }
     }
-}
\ No newline at end of file
+
+    private enum CommandType {
+        ADD_FLOATING,
+        SET_DIALOGUE,
+        STOP_DIALOGUE
+    }
+
+    private static class Command {
+        private final CommandType type;
+        private final MixerStream stream;
+        private final long generation;
+
+        private Command(CommandType type, MixerStream stream, long generation) {
+            this.type = type;
+            this.stream = stream;
+            this.generation = generation;
+        }
+    }
+}
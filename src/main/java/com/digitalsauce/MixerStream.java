@@ -0,0 +1,131 @@
+package com.digitalsauce;
+
+import javax.sound.sampled.AudioInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * A stream registered with the mixer, together with the gain and stereo position it is mixed
+ * at. Both can be changed from any thread while the stream plays; the mixer picks up the new
+ * values at its next block and ramps to them across that block. A stream played at other than
+ * its synthesized pitch is read through a {@link PitchShifter}.
+ */
+public class MixerStream {
+    private static final double SQRT_2 = Math.sqrt(2.0);
+
+    private final AudioInputStream stream;
+    private final InputStream input;
+    private double gain;
+    private double pan;
+    // Left and right Q15 gains packed into one value, so the mixer never sees half an update
+    private volatile long targetGains;
+    // Owned by the mixer thread
+    private long appliedGains;
+    private boolean delivered = false;
+    // A block gathered over several short reads, mixed only once whole
+    private final byte[] block = new byte[MixCore.BLOCK_BYTES];
+    private int blockLength = 0;
+    private volatile boolean closed = false;
+
+    /**
+     * @param pitch frequency ratio to shift the stream by, 1 to play it as synthesized
+     */
+    MixerStream(AudioInputStream stream, double gain, double pan, double pitch) {
+        this.stream = stream;
+        this.input = pitch == 1.0 ? stream : new PitchShifter(stream, pitch);
+        this.gain = gain;
+        this.pan = pan;
+        this.targetGains = pack(gain, pan);
+        this.appliedGains = targetGains;
+    }
+
+    AudioInputStream getStream() {
+        return stream;
+    }
+
+    /**
+     * @param gain linear gain, 1 for unchanged samples
+     */
+    public synchronized void setGain(double gain) {
+        this.gain = gain;
+        targetGains = pack(gain, pan);
+    }
+
+    /**
+     * @param pan stereo position from -1 (left) through 0 (centre) to 1 (right)
+     */
+    public synchronized void setPan(double pan) {
+        this.pan = pan;
+        targetGains = pack(gain, pan);
+    }
+
+    public synchronized void setGainAndPan(double gain, double pan) {
+        this.gain = gain;
+        this.pan = pan;
+        targetGains = pack(gain, pan);
+    }
+
+    /**
+     * Whether the mixer has finished with this stream; later gain changes have no effect.
+     */
+    public boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * Mixes this stream's next block, moving from the gains used for the previous block to the
+     * current ones. A stream that is momentarily short keeps what it read for the next block
+     * rather than leaving a hole mid-block; only its final block may be partial. Called only by
+     * the mixer thread.
+     *
+     * @return bytes mixed, 0 if no whole block was ready, or -1 at end of stream
+     */
+    int mixInto(MixCore mixCore) throws IOException {
+        int n = input.read(block, blockLength, block.length - blockLength);
+        if (n > 0) {
+            blockLength += n;
+        }
+        boolean ended = n < 0;
+        if (blockLength < block.length && !(ended && blockLength > 0)) {
+            return ended ? -1 : 0;
+        }
+        long target = targetGains;
+        long applied = appliedGains;
+        appliedGains = target;
+        mixCore.mix(block, blockLength, left(applied), right(applied), left(target), right(target));
+        int mixed = blockLength;
+        blockLength = 0;
+        delivered = true;
+        return mixed;
+    }
+
+    /**
+     * Whether any audio has been mixed from this stream yet. Called only by the mixer thread.
+     */
+    boolean hasDelivered() {
+        return delivered;
+    }
+
+    void close() throws IOException {
+        closed = true;
+        stream.close();
+    }
+
+    /**
+     * Constant-power pan law, scaled so a centred stream keeps its gain on both channels.
+     */
+    private static long pack(double gain, double pan) {
+        double angle = (Math.max(-1.0, Math.min(1.0, pan)) + 1.0) * Math.PI / 4;
+        int left = MixCore.toQ15(gain * Math.min(1.0, SQRT_2 * Math.cos(angle)));
+        int right = MixCore.toQ15(gain * Math.min(1.0, SQRT_2 * Math.sin(angle)));
+        return ((long) left << 32) | right;
+    }
+
+    private static int left(long gains) {
+        return (int) (gains >>> 32);
+    }
+
+    private static int right(long gains) {
+        return (int) gains;
+    }
+}
@@ -0,0 +1,145 @@
+package com.digitalsauce;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
+
+/**
+ * Shares one synthesis between every speaker saying the same words in the same voice at the
+ * same time, whatever their pitch, such as a crowd repeating a trade message. The first request for a clip key
+ * produces the line; requests arriving while it is queued or playing only add a listener, which
+ * gets its own mixer stream, positioned at its own speaker.
+ */
+@Slf4j
+public class OverheadCoalescer {
+    private final AudioService audioService;
+    private final Map<String, Line> lines = new ConcurrentHashMap<>();
+
+    public OverheadCoalescer(AudioService audioService) {
+        this.audioService = audioService;
+    }
+
+    /**
+     * Adds a listener for {@code emitter} to the line for {@code clipKey}.
+     *
+     * @param maxAgeMillis how long a queued line may wait to start before a new request replaces it
+     * @return the new line when the caller must produce it, or {@code null} if it joined one in progress
+     */
+    public Line join(String clipKey, SpatialAudio.Emitter emitter, long maxAgeMillis) {
+        long now = System.currentTimeMillis();
+        // Lines the scheduler dropped never finish; let go of them and the speakers they hold
+        lines.values().removeIf(line -> line.abandon(now, maxAgeMillis));
+        while (true) {
+            Line created = new Line(clipKey, now);
+            Line line = lines.compute(clipKey, (k, existing) ->
+                    existing != null && existing.isLive(now, maxAgeMillis) ? existing : created);
+            if (!line.addListener(emitter)) {
+                // Abandoned between the lookup and the join; start a fresh line
+                lines.remove(clipKey, line);
+                continue;
+            }
+            if (line != created) {
+                log.debug("Coalesced floating text into line already in progress");
+                return null;
+            }
+            return line;
+        }
+    }
+
+    public class Line {
+        private final String clipKey;
+        private final long createdAt;
+        private final List<SpatialAudio.Emitter> pendingEmitters = new ArrayList<>();
+        private PcmBroadcast broadcast = null;
+        private boolean running = false;
+        private boolean abandoned = false;
+        private Future<?> task = null;
+
+        private Line(String clipKey, long createdAt) {
+            this.clipKey = clipKey;
+            this.createdAt = createdAt;
+        }
+
+        private synchronized boolean isLive(long now, long maxAgeMillis) {
+            if (running) {
+                return true;
+            }
+            // A line the scheduler dropped never starts: stop joining it once its task is
+            // cancelled, or once it is too old to start anyway
+            return !abandoned && (task == null || !task.isCancelled()) && now - createdAt < maxAgeMillis;
+        }
+
+        private synchronized boolean abandon(long now, long maxAgeMillis) {
+            if (isLive(now, maxAgeMillis)) {
+                return false;
+            }
+            abandoned = true;
+            pendingEmitters.clear();
+            return true;
+        }
+
+        /**
+         * Hands the line the scheduled task producing it, so it stops taking listeners if the
+         * scheduler drops the task.
+         */
+        public synchronized void setTask(Future<?> task) {
+            this.task = task;
+        }
+
+        /**
+         * Called first by the task producing the line.
+         *
+         * @return {@code false} if the line waited so long it was abandoned; the task should not go on
+         */
+        public synchronized boolean begin() {
+            running = !abandoned;
+            return running;
+        }
+
+        /**
+         * @return {@code false} if the line was abandoned and will never play
+         */
+        private synchronized boolean addListener(SpatialAudio.Emitter emitter) {
+            if (abandoned) {
+                return false;
+            }
+            if (broadcast != null) {
+                play(emitter);
+            } else {
+                pendingEmitters.add(emitter);
+            }
+            return true;
+        }
+
+        private void play(SpatialAudio.Emitter emitter) {
+            emitter.attach(audioService.playBroadcast(broadcast, emitter.getGain(), emitter.getPan(), emitter.getPitch()));
+        }
+
+        /**
+         * Starts every listener that joined while the line was queued.
+         */
+        public synchronized void start(PcmBroadcast broadcast) {
+            this.broadcast = broadcast;
+            for (SpatialAudio.Emitter emitter : pendingEmitters) {
+                play(emitter);
+            }
+            pendingEmitters.clear();
+        }
+
+        /**
+         * Ends the line; later requests start a new one, served from the clip cache if it was stored.
+         */
+        public void finish() {
+            synchronized (this) {
+                if (broadcast != null) {
+                    broadcast.finish();
+                }
+            }
+            lines.remove(clipKey, this);
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.digitalsauce;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.util.Arrays;
+
+/**
+ * Fans one synthesized line out to any number of listeners, each reading its own stream.
+ * Listeners may subscribe at any point and first receive everything produced so far, so
+ * speakers who join late still hear the line from the start.
+ * <p>
+ * Written by a single producer. Chunks are handed to listeners outside the lock, so a
+ * subscriber on the client thread never waits while the producer waits for the mixer.
+ */
+public class PcmBroadcast implements PcmSink {
+    private static final PcmRingBuffer[] NO_LISTENERS = new PcmRingBuffer[0];
+
+    private final int bufferSize;
+    private final ByteArrayOutputStream received = new ByteArrayOutputStream();
+    // Replaced, never modified, so the producer can iterate a snapshot
+    private PcmRingBuffer[] listeners = NO_LISTENERS;
+    // The whole line once production has finished
+    private byte[] clip = null;
+
+    public PcmBroadcast(int bufferSize) {
+        this.bufferSize = bufferSize;
+    }
+
+    /**
+     * A broadcast of a line that is already complete, such as a cached clip.
+     */
+    public static PcmBroadcast completed(byte[] pcm) {
+        PcmBroadcast broadcast = new PcmBroadcast(0);
+        broadcast.clip = pcm;
+        return broadcast;
+    }
+
+    public synchronized InputStream subscribe() {
+        if (clip != null) {
+            return new ByteArrayInputStream(clip);
+        }
+        // Sized so replaying the backlog never waits on the mixer
+        PcmRingBuffer ring = new PcmRingBuffer(received.size() + bufferSize);
+        byte[] backlog = received.toByteArray();
+        ring.write(backlog, 0, backlog.length);
+        listeners = Arrays.copyOf(listeners, listeners.length + 1);
+        listeners[listeners.length - 1] = ring;
+        return ring;
+    }
+
+    /**
+     * Keeps producing while every listener has stopped, since another may still join and the
+     * finished clip is cached.
+     */
+    @Override
+    public boolean write(byte[] b, int off, int len) {
+        PcmRingBuffer[] snapshot;
+        synchronized (this) {
+            if (clip != null) {
+                return false;
+            }
+            received.write(b, off, len);
+            snapshot = listeners;
+        }
+        for (PcmRingBuffer listener : snapshot) {
+            if (!listener.write(b, off, len)) {
+                unsubscribe(listener);
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void finish() {
+        PcmRingBuffer[] snapshot;
+        synchronized (this) {
+            if (clip != null) {
+                return;
+            }
+            clip = received.toByteArray();
+            snapshot = listeners;
+            listeners = NO_LISTENERS;
+        }
+        for (PcmRingBuffer listener : snapshot) {
+            listener.finish();
+        }
+    }
+
+    private synchronized void unsubscribe(PcmRingBuffer listener) {
+        PcmRingBuffer[] remaining = new PcmRingBuffer[listeners.length];
+        int n = 0;
+        for (PcmRingBuffer ring : listeners) {
+            if (ring != listener) {
+                remaining[n++] = ring;
+            }
+        }
+        listeners = Arrays.copyOf(remaining, n);
+    }
+}
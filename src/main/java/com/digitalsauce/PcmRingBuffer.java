@@ -0,0 +1,126 @@
+package com.digitalsauce;
+
+import java.io.InputStream;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Lock-free single-producer/single-consumer byte ring between one synthesis worker and the
+ * mixer thread. Block reads never block: an empty ring that is still being filled reads as 0 bytes
+ * so the mixer can move on to the other streams, and reports end of stream once finished and
+ * drained. Only the producer waits, parking briefly while the ring is full.
+ */
+public class PcmRingBuffer extends InputStream implements PcmSink {
+    private static final long WRITE_STALL_TIMEOUT_NANOS = 5_000_000_000L;
+    private static final long FULL_PARK_NANOS = 1_000_000L;
+    private static final long EMPTY_PARK_NANOS = 1_000_000L;
+
+    private final byte[] ring;
+    // Total bytes ever written / read; only the owning side advances each counter
+    private final AtomicLong writeCount = new AtomicLong();
+    private final AtomicLong readCount = new AtomicLong();
+    private volatile boolean finished = false;
+    private volatile boolean closed = false;
+    // Consumer-side buffer for single byte reads
+    private final byte[] single = new byte[1];
+
+    public PcmRingBuffer(int capacity) {
+        this.ring = new byte[capacity];
+    }
+
+    /**
+     * Copies {@code len} bytes into the ring, waiting for the mixer to make room when full.
+     * Must only be called from the producing thread.
+     *
+     * @return {@code false} if the consumer closed the stream or stopped draining it
+     */
+    @Override
+    public boolean write(byte[] b, int off, int len) {
+        long stalledSince = 0;
+        long written = writeCount.get();
+        while (len > 0) {
+            if (closed) {
+                return false;
+            }
+            int free = ring.length - (int) (written - readCount.get());
+            if (free == 0) {
+                long now = System.nanoTime();
+                if (stalledSince == 0) {
+                    stalledSince = now;
+                } else if (now - stalledSince > WRITE_STALL_TIMEOUT_NANOS) {
+                    return false;
+                }
+                LockSupport.parkNanos(FULL_PARK_NANOS);
+                continue;
+            }
+            stalledSince = 0;
+            int writePos = (int) (written % ring.length);
+            int chunk = Math.min(len, Math.min(free, ring.length - writePos));
+            System.arraycopy(b, off, ring, writePos, chunk);
+            written += chunk;
+            writeCount.lazySet(written);
+            off += chunk;
+            len -= chunk;
+        }
+        return true;
+    }
+
+    /**
+     * Marks the end of the producer's data; the consumer sees EOF once the ring drains.
+     */
+    @Override
+    public void finish() {
+        finished = true;
+    }
+
+    /**
+     * Must only be called from the consuming thread.
+     */
+    @Override
+    public int read(byte[] b, int off, int len) {
+        if (closed) {
+            return -1;
+        }
+        // Read finished before the write count so a final write is never missed
+        boolean done = finished;
+        long read = readCount.get();
+        int available = (int) (writeCount.get() - read);
+        if (available == 0) {
+            return done ? -1 : 0;
+        }
+        int total = 0;
+        while (total < len && available > 0) {
+            int readPos = (int) (read % ring.length);
+            int chunk = Math.min(len - total, Math.min(available, ring.length - readPos));
+            System.arraycopy(ring, readPos, b, off + total, chunk);
+            read += chunk;
+            available -= chunk;
+            total += chunk;
+        }
+        readCount.lazySet(read);
+        return total;
+    }
+
+    /**
+     * Blocks until a byte is buffered, as {@link InputStream#read()} must; the mixer only ever
+     * reads in blocks, which never wait. Must only be called from the consuming thread.
+     */
+    @Override
+    public int read() {
+        int n;
+        while ((n = read(single, 0, 1)) == 0) {
+            LockSupport.parkNanos(EMPTY_PARK_NANOS);
+        }
+        return n < 0 ? -1 : single[0] & 0xff;
+    }
+
+    @Override
+    public int available() {
+        return (int) (writeCount.get() - readCount.get());
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+    }
+}
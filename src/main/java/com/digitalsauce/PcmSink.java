@@ -0,0 +1,16 @@
+package com.digitalsauce;
+
+/**
+ * Producer side of a PCM stream that is played while it is still being synthesized.
+ */
+public interface PcmSink {
+    /**
+     * @return {@code false} once nobody is listening and the producer can stop
+     */
+    boolean write(byte[] b, int off, int len);
+
+    /**
+     * Marks the end of the producer's data.
+     */
+    void finish();
+}
@@ -0,0 +1,27 @@
+package com.digitalsauce;
+
+/**
+ * A line being synthesized, delivered as 16 kHz / 16-bit mono PCM chunks as they become
+ * available. Owned by one reader; {@link #cancel()} may be called from any thread.
+ */
+public interface PcmSource extends AutoCloseable {
+    /**
+     * Fills {@code buffer} with the next chunk, blocking until it is available.
+     *
+     * @return the number of bytes read, or 0 once the line has ended or was cancelled
+     */
+    int read(byte[] buffer);
+
+    /**
+     * @return whether every chunk of the line was delivered, rather than cut short
+     */
+    boolean isComplete();
+
+    /**
+     * Stops synthesis early; the reader sees the end of the line.
+     */
+    void cancel();
+
+    @Override
+    void close();
+}
@@ -0,0 +1,301 @@
+package com.digitalsauce;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Shifts the pitch of a 16 kHz mono stream without changing its duration. The signal is first
+ * time-stretched by the pitch ratio with WSOLA (overlapping Hann frames, each aligned to the
+ * natural continuation of the previous one by cross-correlation), then resampled by the same
+ * ratio with linear interpolation.
+ * <p>
+ * Runs on the mixer thread as a per-stream stage: block reads never wait and never allocate after
+ * construction. While the source has nothing buffered it returns 0, like the source itself.
+ */
+public class PitchShifter extends InputStream {
+    // 32 ms frames at 50% overlap; long enough to span two periods of a low voice
+    private static final int FRAME = 512;
+    private static final int HOP = FRAME / 2;
+    // How far, in samples, a frame may move to line up with the previous one
+    private static final int SEEK = 64;
+    private static final int INPUT_CAPACITY = 4096;
+    private static final int STRETCHED_CAPACITY = 1024;
+    private static final float[] WINDOW = new float[FRAME];
+    private static final long EMPTY_PARK_NANOS = 1_000_000L;
+
+    static {
+        // Periodic Hann: overlapping halves sum to exactly one
+        for (int i = 0; i < FRAME; i++) {
+            WINDOW[i] = (float) (0.5 - 0.5 * Math.cos(2 * Math.PI * i / FRAME));
+        }
+    }
+
+    private final InputStream source;
+    private final double ratio;
+    private final double analysisHop;
+
+    // Input samples; inputBase is the stream position of input[0]
+    private final float[] input = new float[INPUT_CAPACITY];
+    private final byte[] readBuffer = new byte[INPUT_CAPACITY * 2];
+    private long inputBase = 0;
+    private int inputLength = 0;
+    private int carryByte = -1;
+    private boolean sourceEnded = false;
+
+    // WSOLA state: where the next frame nominally starts, and where the last one was taken from.
+    // Starting half a frame early gives the first samples two overlapping frames like all the
+    // others, at the cost of 16 ms of leading silence.
+    private double nominal = -HOP;
+    private long previous = Long.MIN_VALUE;
+    private final float[] overlap = new float[FRAME];
+
+    // Time-stretched signal awaiting resampling
+    private final float[] stretched = new float[STRETCHED_CAPACITY];
+    private long stretchedBase = 0;
+    private int stretchedLength = 0;
+    private double readPosition = 0;
+
+    // One sample for single byte reads, and its high byte until it is read
+    private final byte[] single = new byte[2];
+    private int pendingByte = -1;
+
+    /**
+     * @param ratio frequency ratio, above 1 for a higher voice
+     */
+    public PitchShifter(InputStream source, double ratio) {
+        this.source = source;
+        this.ratio = ratio;
+        this.analysisHop = HOP / ratio;
+    }
+
+    /**
+     * Converts a pitch setting as used by the config and panel ("default", "+10%", "-5%") to a
+     * frequency ratio. Semitones ("+2st") and the SSML names x-low to x-high are accepted as well.
+     */
+    public static double ratio(String pitch) {
+        if (pitch == null) {
+            return 1.0;
+        }
+        String trimmed = pitch.trim().toLowerCase();
+        switch (trimmed) {
+            case "":
+            case "default":
+            case "medium":
+                return 1.0;
+            case "x-low":
+                return 0.8;
+            case "low":
+                return 0.9;
+            case "high":
+                return 1.1;
+            case "x-high":
+                return 1.2;
+        }
+        try {
+            double ratio;
+            if (trimmed.endsWith("st")) {
+                ratio = Math.pow(2, Double.parseDouble(trimmed.substring(0, trimmed.length() - 2).replace("+", "")) / 12);
+            } else {
+                ratio = 1.0 + Double.parseDouble(trimmed.replace("%", "").replace("+", "")) / 100.0;
+            }
+            return Math.max(0.5, Math.min(2.0, ratio));
+        } catch (NumberFormatException e) {
+            return 1.0;
+        }
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (pendingByte >= 0 && len > 0) {
+            // Finish the sample a single byte read started
+            b[off] = (byte) pendingByte;
+            pendingByte = -1;
+            int n = read(b, off + 1, len - 1);
+            return n > 0 ? n + 1 : 1;
+        }
+        int wanted = len >> 1;
+        int produced = 0;
+        while (produced < wanted) {
+            if (canResample()) {
+                int sample = Math.round(resample());
+                sample = Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, sample));
+                b[off++] = (byte) sample;
+                b[off++] = (byte) (sample >> 8);
+                produced++;
+            } else if (!nextFrame() && !fill()) {
+                break;
+            }
+        }
+        if (produced == 0 && sourceEnded && !canResample() && (long) nominal >= inputBase + inputLength) {
+            return -1;
+        }
+        return produced << 1;
+    }
+
+    /**
+     * Produces a whole sample and hands it out a byte at a time; waits while the source has
+     * nothing buffered, as {@link InputStream#read()} must. The mixer only reads in blocks.
+     */
+    @Override
+    public int read() throws IOException {
+        if (pendingByte >= 0) {
+            int b = pendingByte;
+            pendingByte = -1;
+            return b;
+        }
+        int n;
+        while ((n = read(single, 0, 2)) == 0) {
+            LockSupport.parkNanos(EMPTY_PARK_NANOS);
+        }
+        if (n < 0) {
+            return -1;
+        }
+        pendingByte = single[1] & 0xff;
+        return single[0] & 0xff;
+    }
+
+    @Override
+    public void close() throws IOException {
+        source.close();
+    }
+
+    private boolean canResample() {
+        return (long) readPosition + 1 < stretchedBase + stretchedLength;
+    }
+
+    private float resample() {
+        long index = (long) readPosition;
+        float frac = (float) (readPosition - index);
+        int i = (int) (index - stretchedBase);
+        float value = stretched[i] + (stretched[i + 1] - stretched[i]) * frac;
+        readPosition += ratio;
+        return value;
+    }
+
+    /**
+     * Adds one frame to the stretched signal if enough input is buffered.
+     */
+    private boolean nextFrame() {
+        long inputEnd = inputBase + inputLength;
+        long nominalStart = (long) Math.floor(nominal);
+        if (sourceEnded) {
+            if (nominalStart >= inputEnd) {
+                return false;
+            }
+        } else {
+            long needed = nominalStart + SEEK + FRAME;
+            if (previous != Long.MIN_VALUE) {
+                needed = Math.max(needed, previous + HOP + FRAME);
+            }
+            if (needed > inputEnd) {
+                return false;
+            }
+        }
+        compactStretched();
+        if (stretchedLength + HOP > STRETCHED_CAPACITY) {
+            return false;
+        }
+
+        long start = previous == Long.MIN_VALUE ? nominalStart : align(nominalStart, previous + HOP);
+        for (int j = 0; j < FRAME; j++) {
+            overlap[j] += WINDOW[j] * sample(start + j);
+        }
+        System.arraycopy(overlap, 0, stretched, stretchedLength, HOP);
+        stretchedLength += HOP;
+        System.arraycopy(overlap, HOP, overlap, 0, FRAME - HOP);
+        for (int j = FRAME - HOP; j < FRAME; j++) {
+            overlap[j] = 0f;
+        }
+        previous = start;
+        nominal += analysisHop;
+        compactInput();
+        return true;
+    }
+
+    /**
+     * Finds the frame start within {@link #SEEK} of {@code nominalStart} whose opening half best
+     * matches the signal that naturally follows the previous frame.
+     */
+    private long align(long nominalStart, long continuation) {
+        long best = nominalStart;
+        double bestScore = Double.NEGATIVE_INFINITY;
+        long from = Math.max(inputBase, nominalStart - SEEK);
+        for (long candidate = from; candidate <= nominalStart + SEEK; candidate++) {
+            double correlation = 0;
+            double energy = 1e-3;
+            for (int j = 0; j < HOP; j++) {
+                float x = sample(candidate + j);
+                correlation += x * sample(continuation + j);
+                energy += x * x;
+            }
+            double score = correlation / Math.sqrt(energy);
+            if (score > bestScore) {
+                bestScore = score;
+                best = candidate;
+            }
+        }
+        return best;
+    }
+
+    private float sample(long position) {
+        long i = position - inputBase;
+        return i < 0 || i >= inputLength ? 0f : input[(int) i];
+    }
+
+    /**
+     * Reads whatever the source has buffered.
+     *
+     * @return whether anything changed: samples arrived or the source ended
+     */
+    private boolean fill() throws IOException {
+        if (sourceEnded) {
+            return false;
+        }
+        int room = (INPUT_CAPACITY - inputLength) * 2 - (carryByte >= 0 ? 1 : 0);
+        if (room <= 0) {
+            return false;
+        }
+        int offset = 0;
+        if (carryByte >= 0) {
+            readBuffer[0] = (byte) carryByte;
+            offset = 1;
+        }
+        int n = source.read(readBuffer, offset, room);
+        if (n < 0) {
+            sourceEnded = true;
+            return true;
+        }
+        if (n == 0) {
+            return false;
+        }
+        int bytes = offset + n;
+        carryByte = (bytes & 1) != 0 ? readBuffer[bytes - 1] & 0xff : -1;
+        for (int b = 0; b + 1 < bytes; b += 2) {
+            input[inputLength++] = (short) ((readBuffer[b] & 0xff) | (readBuffer[b + 1] << 8));
+        }
+        return true;
+    }
+
+    private void compactInput() {
+        long keepFrom = (long) Math.floor(nominal) - SEEK;
+        if (previous != Long.MIN_VALUE) {
+            keepFrom = Math.min(keepFrom, previous + HOP);
+        }
+        int drop = (int) Math.min(inputLength, keepFrom - inputBase);
+        if (drop > 0) {
+            System.arraycopy(input, drop, input, 0, inputLength - drop);
+            inputLength -= drop;
+            inputBase += drop;
+        }
+    }
+
+    private void compactStretched() {
+        int drop = (int) Math.min(stretchedLength, (long) readPosition - stretchedBase);
+        if (drop > 0) {
+            System.arraycopy(stretched, drop, stretched, 0, stretchedLength - drop);
+            stretchedLength -= drop;
+            stretchedBase += drop;
+        }
+    }
+}
@@ -0,0 +1,199 @@
+package com.digitalsauce;
+
+import com.digitalsauce.CharacterTTSPlugin.TtsSource;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+/**
+ * Plays a line that was split into sentences as one continuous source, so it reaches the
+ * mixer as a single stream. The first sentence may stream live from the engine; the others are
+ * prepared as whole clips on the {@link TtsScheduler}, in order and only a few ahead of
+ * playback, and each is followed by a short pause.
+ */
+@Slf4j
+public class SegmentedPcmSource implements PcmSource {
+    // Stands in for the pause the engine would have left between the sentences
+    private static final int PAUSE_BYTES = 16000 * 2 / 4;
+
+    private final TtsScheduler scheduler;
+    private final TtsSource source;
+    private final int maxAhead;
+    private final List<Callable<byte[]>> clips;
+    private final List<Future<byte[]>> prepared = new ArrayList<>();
+    // The live sentence, if any, and where its audio is collected for the cache
+    private volatile PcmSource live;
+    private Consumer<byte[]> onLiveComplete;
+    private ByteArrayOutputStream liveRecording;
+    // The clip being played and how much of it, then the pause after
+    private int next = 0;
+    private byte[] clip = null;
+    private int clipPosition = 0;
+    private int pauseRemaining = 0;
+    private volatile boolean cancelled = false;
+    private boolean failed = false;
+
+    /**
+     * Starts preparing the first {@code maxAhead} clips straight away.
+     *
+     * @param live source for the first sentence, or {@code null} if every sentence is in {@code clips}
+     * @param onLiveComplete receives the live sentence's PCM if it was delivered in full
+     * @param clips loaders for the remaining sentences, in order; a loader returns {@code null} on failure
+     */
+    public SegmentedPcmSource(TtsScheduler scheduler, TtsSource source, int maxAhead,
+                              PcmSource live, Consumer<byte[]> onLiveComplete, List<Callable<byte[]>> clips) {
+        this.scheduler = scheduler;
+        this.source = source;
+        this.maxAhead = maxAhead;
+        this.live = live;
+        this.onLiveComplete = onLiveComplete;
+        this.liveRecording = live != null ? new ByteArrayOutputStream() : null;
+        this.clips = clips;
+        prepareAhead();
+    }
+
+    @Override
+    public int read(byte[] buffer) {
+        while (!cancelled && !failed) {
+            if (live != null) {
+                int n = live.read(buffer);
+                if (n > 0) {
+                    liveRecording.write(buffer, 0, n);
+                    return n;
+                }
+                if (!live.isComplete()) {
+                    failed = true;
+                    return 0;
+                }
+                onLiveComplete.accept(liveRecording.toByteArray());
+                closeLive();
+                pauseRemaining = next < clips.size() ? PAUSE_BYTES : 0;
+                continue;
+            }
+            if (clip != null) {
+                if (clipPosition < clip.length) {
+                    int n = Math.min(buffer.length & ~1, clip.length - clipPosition);
+                    System.arraycopy(clip, clipPosition, buffer, 0, n);
+                    clipPosition += n;
+                    return n;
+                }
+                clip = null;
+                pauseRemaining = next < clips.size() ? PAUSE_BYTES : 0;
+            }
+            if (pauseRemaining > 0) {
+                int n = Math.min(buffer.length & ~1, pauseRemaining);
+                Arrays.fill(buffer, 0, n, (byte) 0);
+                pauseRemaining -= n;
+                return n;
+            }
+            if (next >= clips.size()) {
+                return 0;
+            }
+            Future<byte[]> future;
+            synchronized (prepared) {
+                // Nothing is queued past this point once the line is cancelled
+                future = next < prepared.size() ? prepared.set(next, null) : null;
+            }
+            clip = await(future, clips.get(next));
+            next++;
+            clipPosition = 0;
+            if (clip == null) {
+                failed = true;
+                return 0;
+            }
+            prepareAhead();
+        }
+        return 0;
+    }
+
+    @Override
+    public boolean isComplete() {
+        return !cancelled && !failed && live == null && clip == null && pauseRemaining == 0 && next >= clips.size();
+    }
+
+    @Override
+    public void cancel() {
+        cancelled = true;
+        PcmSource current = live;
+        if (current != null) {
+            current.cancel();
+        }
+        synchronized (prepared) {
+            for (Future<byte[]> future : prepared) {
+                if (future != null) {
+                    future.cancel(true);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        closeLive();
+        synchronized (prepared) {
+            for (Future<byte[]> future : prepared) {
+                if (future != null) {
+                    future.cancel(true);
+                }
+            }
+        }
+    }
+
+    private void prepareAhead() {
+        synchronized (prepared) {
+            while (!cancelled && prepared.size() < clips.size() && prepared.size() < next + maxAhead) {
+                prepared.add(scheduler.submit(source, clips.get(prepared.size())));
+            }
+        }
+    }
+
+    private byte[] await(Future<byte[]> future, Callable<byte[]> loader) {
+        if (future == null) {
+            return null;
+        }
+        // Never wait on a clip that no worker has started: prepare it here instead
+        scheduler.runIfQueued(future);
+        try {
+            return future.get();
+        } catch (CancellationException e) {
+            if (cancelled) {
+                return null;
+            }
+            // Pushed out of a full dialogue queue before it ran; rather than cut the line short
+            try {
+                return loader.call();
+            } catch (Exception ex) {
+                log.warn("Sentence synthesis failed: ", ex);
+                return null;
+            }
+        } catch (ExecutionException e) {
+            log.warn("Sentence synthesis failed: ", e.getCause());
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+
+    private void closeLive() {
+        PcmSource current = live;
+        if (current != null) {
+            live = null;
+            liveRecording = null;
+            onLiveComplete = null;
+            try {
+                current.close();
+            } catch (Exception e) {
+                log.warn("Error closing sentence source: ", e);
+            }
+        }
+    }
+}
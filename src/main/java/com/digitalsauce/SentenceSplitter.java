@@ -0,0 +1,79 @@
+package com.digitalsauce;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Splits long lines at sentence boundaries, so each sentence can be synthesized and cached on
+ * its own. A boundary is terminal punctuation, then any closing quotes or brackets, then
+ * whitespace before a capital, digit or opening quote; common titles such as "Mr." do not end
+ * a sentence.
+ */
+public class SentenceSplitter {
+    // Shorter lines are synthesized whole; splitting them would cost requests and gain nothing
+    static final int MIN_SPLIT_LENGTH = 80;
+
+    private static final Set<String> TITLES = new HashSet<>(Arrays.asList(
+            "mr", "mrs", "ms", "dr", "st", "mt", "sr", "jr", "prof"));
+
+    private SentenceSplitter() {
+    }
+
+    /**
+     * @return the sentences of {@code text}, in order, or {@code text} alone if it is short or
+     * has only one sentence
+     */
+    public static List<String> split(String text) {
+        if (text.length() < MIN_SPLIT_LENGTH) {
+            return Collections.singletonList(text);
+        }
+        List<String> sentences = new ArrayList<>();
+        int start = 0;
+        int i = 0;
+        while (i < text.length()) {
+            char c = text.charAt(i);
+            if (c != '.' && c != '!' && c != '?') {
+                i++;
+                continue;
+            }
+            int end = i + 1;
+            while (end < text.length() && isTrailing(text.charAt(end))) {
+                end++;
+            }
+            int next = end;
+            while (next < text.length() && Character.isWhitespace(text.charAt(next))) {
+                next++;
+            }
+            if (next > end && next < text.length() && isOpening(text.charAt(next))
+                    && !(c == '.' && isTitle(text, start, i))) {
+                sentences.add(text.substring(start, end));
+                start = next;
+            }
+            i = next;
+        }
+        if (start < text.length()) {
+            sentences.add(text.substring(start).trim());
+        }
+        return sentences;
+    }
+
+    private static boolean isTrailing(char c) {
+        return c == '.' || c == '!' || c == '?' || c == '"' || c == '\'' || c == ')' || c == ']';
+    }
+
+    private static boolean isOpening(char c) {
+        return Character.isUpperCase(c) || Character.isDigit(c) || c == '"' || c == '\'' || c == '(';
+    }
+
+    private static boolean isTitle(String text, int sentenceStart, int period) {
+        int wordStart = period;
+        while (wordStart > sentenceStart && Character.isLetter(text.charAt(wordStart - 1))) {
+            wordStart--;
+        }
+        return TITLES.contains(text.substring(wordStart, period).toLowerCase());
+    }
+}
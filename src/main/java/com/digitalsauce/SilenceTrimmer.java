@@ -0,0 +1,124 @@
+package com.digitalsauce;
+
+import java.util.Arrays;
+
+/**
+ * Finds the near-silent padding that engines put around each clip, in 10 ms windows whose RMS
+ * level falls below a threshold. A little of the padding is kept on either side, so soft
+ * onsets and decays are not clipped.
+ */
+public class SilenceTrimmer {
+    private static final int WINDOW_BYTES = 16000 / 100 * 2;
+    private static final int LEAD_PAD_BYTES = 2 * WINDOW_BYTES;
+    private static final int TRAIL_PAD_BYTES = 4 * WINDOW_BYTES;
+
+    private SilenceTrimmer() {
+    }
+
+    /**
+     * Converts a threshold in dBFS to the RMS amplitude the other methods take.
+     */
+    public static int threshold(int dbfs) {
+        return (int) Math.round(Short.MAX_VALUE * Math.pow(10, dbfs / 20.0));
+    }
+
+    /**
+     * @return {@code pcm} without its leading and trailing silence, or {@code pcm} itself if there
+     * is nothing to cut. A clip with no voiced window at all is left alone rather than emptied,
+     * since that more likely means the threshold is set too high.
+     */
+    public static byte[] trim(byte[] pcm, int threshold) {
+        int windows = pcm.length / WINDOW_BYTES;
+        int first = 0;
+        while (first < windows && !isVoiced(pcm, first * WINDOW_BYTES, WINDOW_BYTES, threshold)) {
+            first++;
+        }
+        if (first == windows && !isVoiced(pcm, windows * WINDOW_BYTES, pcm.length - windows * WINDOW_BYTES, threshold)) {
+            return pcm;
+        }
+        int last = windows;
+        while (last > first && !isVoiced(pcm, (last - 1) * WINDOW_BYTES, WINDOW_BYTES, threshold)) {
+            last--;
+        }
+        int from = Math.max(0, first * WINDOW_BYTES - LEAD_PAD_BYTES);
+        // Keep the partial window at the end when the last full window is voiced
+        int to = last == windows ? pcm.length : Math.min(pcm.length, last * WINDOW_BYTES + TRAIL_PAD_BYTES);
+        return from == 0 && to == pcm.length ? pcm : Arrays.copyOfRange(pcm, from, to);
+    }
+
+    /**
+     * Wraps {@code sink} so it only receives audio from shortly before the first voiced window.
+     * Trailing silence cannot be known while streaming; {@link #trim} removes it at insert time.
+     */
+    public static PcmSink skipLeading(PcmSink sink, int threshold) {
+        return new LeadingTrim(sink, threshold);
+    }
+
+    private static boolean isVoiced(byte[] pcm, int off, int len, int threshold) {
+        int samples = len >> 1;
+        if (samples == 0) {
+            return false;
+        }
+        long energy = 0;
+        for (int i = 0, b = off; i < samples; i++, b += 2) {
+            int sample = (short) ((pcm[b] & 0xff) | (pcm[b + 1] << 8));
+            energy += sample * sample;
+        }
+        return energy > (long) threshold * threshold * samples;
+    }
+
+    /**
+     * Holds back windows until one is voiced, then releases it with the padding before it and
+     * passes everything after straight through.
+     */
+    private static class LeadingTrim implements PcmSink {
+        private final PcmSink sink;
+        private final int threshold;
+        // The padding plus the window being filled
+        private final byte[] pending = new byte[LEAD_PAD_BYTES + WINDOW_BYTES];
+        private int pendingLength = 0;
+        private boolean voiced = false;
+
+        private LeadingTrim(PcmSink sink, int threshold) {
+            this.sink = sink;
+            this.threshold = threshold;
+        }
+
+        @Override
+        public boolean write(byte[] b, int off, int len) {
+            if (voiced) {
+                return sink.write(b, off, len);
+            }
+            while (len > 0) {
+                int windowEnd = (pendingLength / WINDOW_BYTES + 1) * WINDOW_BYTES;
+                int n = Math.min(len, windowEnd - pendingLength);
+                System.arraycopy(b, off, pending, pendingLength, n);
+                pendingLength += n;
+                off += n;
+                len -= n;
+                if (pendingLength < windowEnd) {
+                    return true;
+                }
+                if (isVoiced(pending, pendingLength - WINDOW_BYTES, WINDOW_BYTES, threshold)) {
+                    voiced = true;
+                    return sink.write(pending, 0, pendingLength) && (len == 0 || sink.write(b, off, len));
+                }
+                if (pendingLength == pending.length) {
+                    // Still silent: drop the oldest window, keeping the rest as padding
+                    System.arraycopy(pending, WINDOW_BYTES, pending, 0, pendingLength - WINDOW_BYTES);
+                    pendingLength -= WINDOW_BYTES;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public void finish() {
+            int partial = pendingLength % WINDOW_BYTES;
+            if (!voiced && partial > 0 && isVoiced(pending, pendingLength - partial, partial, threshold)) {
+                sink.write(pending, 0, pendingLength);
+            }
+            sink.finish();
+        }
+    }
+}
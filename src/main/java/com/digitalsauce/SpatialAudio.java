@@ -0,0 +1,155 @@
+package com.digitalsauce;
+
+import net.runelite.api.Actor;
+import net.runelite.api.Client;
+import net.runelite.api.Player;
+import net.runelite.api.coords.LocalPoint;
+import net.runelite.api.coords.WorldPoint;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Keeps floating text where its speaker is. Every game tick, the streams of each positioned
+ * speaker get a gain from their distance to the local player and a pan from their bearing
+ * relative to the camera, so a line follows someone walking past while it plays.
+ * {@link #emitter} and {@link #tick} run on the client thread; streams attach from any thread.
+ */
+public class SpatialAudio {
+    // Never silence one ear entirely
+    private static final double MAX_PAN = 0.8;
+    private static final double JAU_TO_RADIANS = 2 * Math.PI / 2048;
+
+    private final Client client;
+    private final CharacterTTSConfig config;
+    private final Set<Emitter> emitters = ConcurrentHashMap.newKeySet();
+
+    public SpatialAudio(Client client, CharacterTTSConfig config) {
+        this.client = client;
+        this.config = config;
+    }
+
+    /**
+     * @param speaker the actor the line comes from, or {@code null} for a centred line that does not move
+     * @param volume linear gain for the speaker's voice setting
+     * @param pitch frequency ratio for the speaker's voice setting
+     */
+    public Emitter emitter(Actor speaker, double volume, double pitch) {
+        Emitter emitter = new Emitter(speaker, volume, pitch);
+        emitter.locate();
+        return emitter;
+    }
+
+    public void tick() {
+        for (Emitter emitter : emitters) {
+            if (!emitter.update()) {
+                emitters.remove(emitter);
+                // A stream may have attached since update() looked
+                if (!emitter.streams.isEmpty()) {
+                    emitters.add(emitter);
+                }
+            }
+        }
+    }
+
+    /**
+     * Gain for a speaker at {@code distance} tiles, falling off towards the configured minimum.
+     */
+    private double proximityGain(int distance) {
+        return distance >= config.maxDistance() ? config.minVolumeRatio() :
+                config.minVolumeRatio() + (1.0 - ((double) distance / config.maxDistance())) * (config.maxVolumeRatio() - config.minVolumeRatio());
+    }
+
+    /**
+     * Pan from where the speaker is on screen: the same yaw rotation {@code Perspective} uses to
+     * project onto the canvas, keeping only the horizontal component.
+     */
+    private double bearingPan(LocalPoint listener, LocalPoint speaker) {
+        if (listener == null || speaker == null) {
+            return 0.0;
+        }
+        int dx = speaker.getX() - listener.getX();
+        int dy = speaker.getY() - listener.getY();
+        double distance = Math.hypot(dx, dy);
+        if (distance < 1) {
+            return 0.0;
+        }
+        double yaw = client.getCameraYaw() * JAU_TO_RADIANS;
+        return MAX_PAN * (dx * Math.cos(yaw) + dy * Math.sin(yaw)) / distance;
+    }
+
+    /**
+     * One speaker's floating text; every stream playing it is kept at the speaker's position
+     * and shifted to the speaker's pitch.
+     */
+    public class Emitter {
+        private final Actor speaker;
+        private final double volume;
+        private final double pitch;
+        private final List<MixerStream> streams = new CopyOnWriteArrayList<>();
+        private volatile double gain;
+        private volatile double pan;
+
+        private Emitter(Actor speaker, double volume, double pitch) {
+            this.speaker = speaker;
+            this.volume = volume;
+            this.pitch = pitch;
+            this.gain = volume;
+        }
+
+        public double getPitch() {
+            return pitch;
+        }
+
+        public double getGain() {
+            return gain;
+        }
+
+        public double getPan() {
+            return pan;
+        }
+
+        /**
+         * Starts following the speaker with {@code stream}, already started at {@link #getGain}
+         * and {@link #getPan}.
+         */
+        public void attach(MixerStream stream) {
+            if (speaker == null) {
+                return;
+            }
+            streams.add(stream);
+            emitters.add(this);
+        }
+
+        private void locate() {
+            Player localPlayer = client.getLocalPlayer();
+            if (speaker == null || localPlayer == null) {
+                return;
+            }
+            WorldPoint listenerLoc = localPlayer.getWorldLocation();
+            WorldPoint speakerLoc = speaker.getWorldLocation();
+            if (listenerLoc == null || speakerLoc == null) {
+                return;
+            }
+            gain = volume * proximityGain(listenerLoc.distanceTo(speakerLoc));
+            pan = bearingPan(localPlayer.getLocalLocation(), speaker.getLocalLocation());
+        }
+
+        /**
+         * @return {@code false} once every attached stream has finished
+         */
+        private boolean update() {
+            streams.removeIf(MixerStream::isClosed);
+            if (streams.isEmpty()) {
+                return false;
+            }
+            locate();
+            for (MixerStream stream : streams) {
+                stream.setGainAndPan(gain, pan);
+            }
+            return true;
+        }
+    }
+}
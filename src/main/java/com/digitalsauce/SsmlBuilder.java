@@ -0,0 +1,58 @@
+package com.digitalsauce;
+
+import java.util.regex.Pattern;
+
+/**
+ * Turns game text into the SSML document sent to Azure.
+ */
+public class SsmlBuilder {
+    private static final Pattern LINE_BREAK = Pattern.compile("(?i)<br\\s*/?>");
+    private static final Pattern TAG = Pattern.compile("<[^>]*>");
+
+    private SsmlBuilder() {
+    }
+
+    /**
+     * Replaces widget line breaks with spaces and drops the remaining {@code <col>}-style tags.
+     */
+    public static String sanitize(String text) {
+        String spaced = LINE_BREAK.matcher(text).replaceAll(" ");
+        return TAG.matcher(spaced).replaceAll("").trim();
+    }
+
+    public static String build(String voice, String text) {
+        StringBuilder ssml = new StringBuilder(128 + text.length());
+        ssml.append("<speak version=\"1.0\" xml:lang=\"en-US\">")
+                .append("<voice name=\"").append(voice).append("\">");
+        appendEscaped(ssml, text);
+        return ssml.append("</voice></speak>").toString();
+    }
+
+    /**
+     * Escapes XML markup so lines like "Fish & chips" or "<3" do not break the document.
+     */
+    private static void appendEscaped(StringBuilder sb, String text) {
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '&':
+                    sb.append("&amp;");
+                    break;
+                case '<':
+                    sb.append("&lt;");
+                    break;
+                case '>':
+                    sb.append("&gt;");
+                    break;
+                case '"':
+                    sb.append("&quot;");
+                    break;
+                case '\'':
+                    sb.append("&apos;");
+                    break;
+                default:
+                    sb.append(c);
+            }
+        }
+    }
+}
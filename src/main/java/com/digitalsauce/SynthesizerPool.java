@@ -0,0 +1,160 @@
+package com.digitalsauce;
+
+import com.microsoft.cognitiveservices.speech.Connection;
+import com.microsoft.cognitiveservices.speech.PropertyId;
+import com.microsoft.cognitiveservices.speech.SpeechConfig;
+import com.microsoft.cognitiveservices.speech.SpeechSynthesisOutputFormat;
+import com.microsoft.cognitiveservices.speech.SpeechSynthesizer;
+import com.microsoft.cognitiveservices.speech.audio.AudioConfig;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Long-lived Azure synthesizers keyed by voice. Each synthesizer keeps its service connection
+ * open between utterances, so only the first line per voice pays for connection setup and the
+ * TLS handshake. Synthesizers are handed out exclusively and returned after use; ones that
+ * failed are closed instead of being returned.
+ */
+@Slf4j
+public class SynthesizerPool {
+    private static final int MAX_IDLE_PER_VOICE = 2;
+
+    private final Map<String, Deque<PooledSynthesizer>> idle = new HashMap<>();
+    private String apiKey = "";
+    private String region = "";
+    private int generation = 0;
+
+    /**
+     * Updates the credentials new synthesizers are created with, discarding every idle
+     * synthesizer when they change.
+     */
+    public synchronized void configure(String apiKey, String region) {
+        if (!apiKey.equals(this.apiKey) || !region.equals(this.region)) {
+            this.apiKey = apiKey;
+            this.region = region;
+            clear();
+        }
+    }
+
+    public PooledSynthesizer acquire(String voice) {
+        synchronized (this) {
+            Deque<PooledSynthesizer> pooled = idle.get(voice);
+            if (pooled != null && !pooled.isEmpty()) {
+                return pooled.pop();
+            }
+        }
+        return create(voice);
+    }
+
+    public void release(PooledSynthesizer synthesizer) {
+        synchronized (this) {
+            if (synthesizer.generation == generation) {
+                Deque<PooledSynthesizer> pooled = idle.computeIfAbsent(synthesizer.voice, k -> new ArrayDeque<>());
+                if (pooled.size() < MAX_IDLE_PER_VOICE) {
+                    pooled.push(synthesizer);
+                    return;
+                }
+            }
+        }
+        synthesizer.close();
+    }
+
+    public void invalidate(PooledSynthesizer synthesizer) {
+        log.info("Discarding synthesizer for voice {}", synthesizer.voice);
+        synthesizer.close();
+    }
+
+    /**
+     * Opens a connection for every voice that has no idle synthesizer yet.
+     * Blocks on network setup, so call it off the client thread.
+     */
+    public void prewarm(Collection<String> voices) {
+        for (String voice : voices) {
+            if (voice == null || voice.isEmpty()) {
+                continue;
+            }
+            synchronized (this) {
+                Deque<PooledSynthesizer> pooled = idle.get(voice);
+                if (pooled != null && !pooled.isEmpty()) {
+                    continue;
+                }
+            }
+            try {
+                PooledSynthesizer synthesizer = create(voice);
+                synthesizer.connection.openConnection(false);
+                release(synthesizer);
+                log.info("Pre-warmed synthesizer for voice {}", voice);
+            } catch (Exception e) {
+                log.error("Error pre-warming synthesizer for voice {}: ", voice, e);
+            }
+        }
+    }
+
+    public synchronized void close() {
+        clear();
+    }
+
+    private void clear() {
+        generation++;
+        List<PooledSynthesizer> closing = new ArrayList<>();
+        for (Deque<PooledSynthesizer> pooled : idle.values()) {
+            closing.addAll(pooled);
+        }
+        idle.clear();
+        for (PooledSynthesizer synthesizer : closing) {
+            synthesizer.close();
+        }
+    }
+
+    private PooledSynthesizer create(String voice) {
+        String key;
+        String reg;
+        int gen;
+        synchronized (this) {
+            key = apiKey;
+            reg = region;
+            gen = generation;
+        }
+        SpeechConfig speechConfig = SpeechConfig.fromSubscription(key, reg);
+        speechConfig.setProperty(PropertyId.SpeechServiceConnection_EndSilenceTimeoutMs, "0");
+        speechConfig.setProperty(PropertyId.SpeechServiceResponse_RequestSentenceBoundary, "true");
+        speechConfig.setSpeechSynthesisOutputFormat(SpeechSynthesisOutputFormat.Raw16Khz16BitMonoPcm);
+        speechConfig.setSpeechSynthesisVoiceName(voice);
+        // No audio config: audio is only delivered through the result, which AudioService pulls from
+        SpeechSynthesizer synthesizer = new SpeechSynthesizer(speechConfig, (AudioConfig) null);
+        return new PooledSynthesizer(voice, gen, speechConfig, synthesizer, Connection.fromSpeechSynthesizer(synthesizer));
+    }
+
+    public static class PooledSynthesizer {
+        private final String voice;
+        private final int generation;
+        private final SpeechConfig speechConfig;
+        private final SpeechSynthesizer synthesizer;
+        private final Connection connection;
+
+        private PooledSynthesizer(String voice, int generation, SpeechConfig speechConfig, SpeechSynthesizer synthesizer, Connection connection) {
+            this.voice = voice;
+            this.generation = generation;
+            this.speechConfig = speechConfig;
+            this.synthesizer = synthesizer;
+            this.connection = connection;
+        }
+
+        public SpeechSynthesizer getSynthesizer() {
+            return synthesizer;
+        }
+
+        private void close() {
+            connection.close();
+            synthesizer.close();
+            speechConfig.close();
+        }
+    }
+}
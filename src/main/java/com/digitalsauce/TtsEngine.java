@@ -0,0 +1,23 @@
+package com.digitalsauce;
+
+import java.util.Collection;
+
+/**
+ * A speech synthesis backend. The rest of the pipeline (scheduling, caching, mixing) only
+ * sees the PCM it streams, so backends can be swapped without touching playback.
+ */
+public interface TtsEngine {
+    /**
+     * Starts synthesizing {@code text}, blocking until the first audio is available.
+     *
+     * @throws Exception if the backend rejected or failed the request
+     */
+    PcmSource synthesize(String text, VoiceProfile profile) throws Exception;
+
+    /**
+     * Prepares the backend for these voices ahead of the first line. May block on I/O.
+     */
+    void prewarm(Collection<String> voices);
+
+    void close();
+}
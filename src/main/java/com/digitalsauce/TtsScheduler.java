@@ -0,0 +1,216 @@
+package com.digitalsauce;
+
+import com.digitalsauce.CharacterTTSPlugin.TtsSource;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs TTS work on a fixed set of workers, taking queued requests in priority order:
+ * dialogue and test lines first, then speculative work, then floating text. Each class has its
+ * own bounded queue that drops its oldest request when full, and requests may carry a maximum
+ * age after which they are dropped instead of run. Queued requests are never preempted once
+ * running; priority only decides which request a free worker takes next. While the player is
+ * choosing a dialogue option no dialogue line can arrive, so speculation may use more workers.
+ */
+@Slf4j
+public class TtsScheduler {
+    private static final TtsSource[] PRIORITY_ORDER = {TtsSource.DIALOGUE, TtsSource.TEST, TtsSource.SPECULATIVE, TtsSource.FLOATING};
+    private static final int MAX_QUEUED_PER_CLASS = 16;
+    // Leaves workers free for the line the player actually picks
+    private static final int MAX_RUNNING_SPECULATIVE = 2;
+    // While options are showing, keep one worker for test lines
+    private static final int RESERVED_WHILE_CHOOSING = 1;
+
+    private final Map<TtsSource, ArrayDeque<Task<?>>> queues = new EnumMap<>(TtsSource.class);
+    private final Map<TtsSource, Integer> running = new EnumMap<>(TtsSource.class);
+    private final Map<TtsSource, AtomicLong> dropped = new EnumMap<>(TtsSource.class);
+    private final List<Thread> workers = new ArrayList<>();
+    private DialogueState dialogueState = DialogueState.CLOSED;
+    private boolean shutdown = false;
+
+    public TtsScheduler(int threads) {
+        for (TtsSource source : TtsSource.values()) {
+            queues.put(source, new ArrayDeque<>());
+            running.put(source, 0);
+            dropped.put(source, new AtomicLong());
+        }
+        for (int i = 0; i < threads; i++) {
+            Thread worker = new Thread(this::work, "TtsScheduler-" + i);
+            worker.setDaemon(true);
+            workers.add(worker);
+            worker.start();
+        }
+    }
+
+    public <T> Future<T> submit(TtsSource source, Callable<T> callable) {
+        return submit(source, Long.MAX_VALUE, callable);
+    }
+
+    /**
+     * Queues {@code callable}, dropping it unrun if no worker picks it up within {@code maxAgeMillis}.
+     * Dropped requests are cancelled, so waiting on their future throws {@code CancellationException}.
+     */
+    public synchronized <T> Future<T> submit(TtsSource source, long maxAgeMillis, Callable<T> callable) {
+        long deadline = maxAgeMillis == Long.MAX_VALUE
+                ? Long.MAX_VALUE
+                : System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(maxAgeMillis);
+        Task<T> task = new Task<>(source, deadline, callable);
+        if (shutdown) {
+            task.cancel(false);
+            return task;
+        }
+        ArrayDeque<Task<?>> queue = queues.get(source);
+        if (queue.size() >= MAX_QUEUED_PER_CLASS) {
+            queue.pollFirst().cancel(false);
+            dropped.get(source).incrementAndGet();
+            log.debug("{} queue full, dropped its oldest request", source);
+        }
+        queue.addLast(task);
+        notifyAll();
+        return task;
+    }
+
+    public Future<?> execute(TtsSource source, long maxAgeMillis, Runnable runnable) {
+        return submit(source, maxAgeMillis, Executors.callable(runnable));
+    }
+
+    public Future<?> execute(TtsSource source, Runnable runnable) {
+        return submit(source, Executors.callable(runnable));
+    }
+
+    /**
+     * Runs {@code future} on the calling thread if it is still queued. A task that waits on work
+     * it queued itself calls this first, so it can never starve waiting for a free worker.
+     */
+    public void runIfQueued(Future<?> future) {
+        Task<?> task = null;
+        synchronized (this) {
+            for (ArrayDeque<Task<?>> queue : queues.values()) {
+                if (queue.remove(future)) {
+                    task = (Task<?>) future;
+                    break;
+                }
+            }
+        }
+        if (task != null) {
+            task.run();
+        }
+    }
+
+    /**
+     * Tells the scheduler which dialogue the player has open.
+     */
+    public synchronized void setDialogueState(DialogueState dialogueState) {
+        this.dialogueState = dialogueState;
+        notifyAll();
+    }
+
+    public synchronized DialogueState getDialogueState() {
+        return dialogueState;
+    }
+
+    public synchronized int getQueueDepth(TtsSource source) {
+        return queues.get(source).size();
+    }
+
+    public long getDropped(TtsSource source) {
+        return dropped.get(source).get();
+    }
+
+    /**
+     * Cancels everything queued and interrupts running requests.
+     */
+    public void shutdown() {
+        synchronized (this) {
+            shutdown = true;
+            for (ArrayDeque<Task<?>> queue : queues.values()) {
+                for (Task<?> task : queue) {
+                    task.cancel(false);
+                }
+                queue.clear();
+            }
+            notifyAll();
+        }
+        for (Thread worker : workers) {
+            worker.interrupt();
+        }
+    }
+
+    private void work() {
+        while (true) {
+            Task<?> task = null;
+            synchronized (this) {
+                try {
+                    while (!shutdown && (task = next()) == null) {
+                        wait();
+                    }
+                } catch (InterruptedException e) {
+                    // Left over from a cancelled request; shutdown is checked below
+                    continue;
+                }
+                if (shutdown) {
+                    return;
+                }
+                running.merge(task.source, 1, Integer::sum);
+            }
+            try {
+                task.run();
+            } finally {
+                synchronized (this) {
+                    running.merge(task.source, -1, Integer::sum);
+                    notifyAll();
+                }
+                // A cancel(true) may land after the task returned; don't let it leak into the next one
+                Thread.interrupted();
+            }
+        }
+    }
+
+    private Task<?> next() {
+        long now = System.nanoTime();
+        int maxSpeculative = dialogueState == DialogueState.OPTIONS
+                ? Math.max(MAX_RUNNING_SPECULATIVE, workers.size() - RESERVED_WHILE_CHOOSING)
+                : MAX_RUNNING_SPECULATIVE;
+        for (TtsSource source : PRIORITY_ORDER) {
+            if (source == TtsSource.SPECULATIVE && running.get(source) >= maxSpeculative) {
+                continue;
+            }
+            ArrayDeque<Task<?>> queue = queues.get(source);
+            Task<?> task;
+            while ((task = queue.pollFirst()) != null) {
+                if (task.isCancelled()) {
+                    continue;
+                }
+                if (task.deadline != Long.MAX_VALUE && now - task.deadline > 0) {
+                    task.cancel(false);
+                    dropped.get(source).incrementAndGet();
+                    continue;
+                }
+                return task;
+            }
+        }
+        return null;
+    }
+
+    private static class Task<T> extends FutureTask<T> {
+        private final TtsSource source;
+        private final long deadline;
+
+        private Task(TtsSource source, long deadline, Callable<T> callable) {
+            super(callable);
+            this.source = source;
+            this.deadline = deadline;
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package com.digitalsauce;
+
+/**
+ * Everything a {@link TtsEngine} needs to know about how a line should sound.
+ */
+public class VoiceProfile {
+    private final String voice;
+
+    public VoiceProfile(String voice) {
+        this.voice = voice;
+    }
+
+    public String getVoice() {
+        return voice;
+    }
+}
@@ -0,0 +1,251 @@
+package com.digitalsauce;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Classifies NPC genders from an OSRS Wiki {@code action=query&prop=revisions} response.
+ * The response is walked with a streaming JSON reader, and each page's wikitext is scored in
+ * a single tokenizing pass without copying, lowercasing or splitting it.
+ * <p>
+ * {@code gender = Male/Female} fields win when they all agree, including the numbered
+ * {@code gender1}, {@code gender2}... fields of infoboxes with several variants. Otherwise
+ * he/him/his and she/her/hers outside templates are counted, and the side that clearly
+ * dominates wins.
+ */
+public class WikiGenderClassifier {
+    private static final int MALE = 1;
+    private static final int FEMALE = 2;
+
+    private WikiGenderClassifier() {
+    }
+
+    /**
+     * @return the gender for each of {@code requestedNames}, following the API's title
+     * normalization and redirects; names without a usable page map to "unknown"
+     */
+    public static Map<String, String> classifyResponse(Reader json, List<String> requestedNames) throws IOException {
+        Map<String, String> renamed = new HashMap<>();
+        Map<String, String> byTitle = new HashMap<>();
+
+        JsonReader reader = new JsonReader(json);
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if ("query".equals(reader.nextName())) {
+                readQuery(reader, renamed, byTitle);
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        Map<String, String> results = new HashMap<>();
+        for (String npcName : requestedNames) {
+            String title = npcName;
+            for (int hops = 0; hops < 2 && renamed.containsKey(title); hops++) {
+                title = renamed.get(title);
+            }
+            String gender = byTitle.get(title);
+            results.put(npcName, gender != null ? gender : "unknown");
+        }
+        return results;
+    }
+
+    private static void readQuery(JsonReader reader, Map<String, String> renamed, Map<String, String> byTitle) throws IOException {
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "normalized":
+                case "redirects":
+                    readTitleMappings(reader, renamed);
+                    break;
+                case "pages":
+                    reader.beginObject();
+                    while (reader.hasNext()) {
+                        reader.nextName();
+                        readPage(reader, byTitle);
+                    }
+                    reader.endObject();
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.endObject();
+    }
+
+    private static void readTitleMappings(JsonReader reader, Map<String, String> renamed) throws IOException {
+        reader.beginArray();
+        while (reader.hasNext()) {
+            String from = null;
+            String to = null;
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String name = reader.nextName();
+                if ("from".equals(name)) {
+                    from = reader.nextString();
+                } else if ("to".equals(name)) {
+                    to = reader.nextString();
+                } else {
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
+            if (from != null && to != null) {
+                renamed.put(from, to);
+            }
+        }
+        reader.endArray();
+    }
+
+    private static void readPage(JsonReader reader, Map<String, String> byTitle) throws IOException {
+        String title = null;
+        String gender = "unknown";
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if ("title".equals(name)) {
+                title = reader.nextString();
+            } else if ("revisions".equals(name) && reader.peek() == JsonToken.BEGIN_ARRAY) {
+                reader.beginArray();
+                if (reader.hasNext()) {
+                    gender = readRevision(reader);
+                }
+                while (reader.hasNext()) {
+                    reader.skipValue();
+                }
+                reader.endArray();
+            } else {
+                // "missing" and "invalid" pages simply have no revisions and stay unknown
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        if (title != null) {
+            byTitle.put(title, gender);
+        }
+    }
+
+    private static String readRevision(JsonReader reader) throws IOException {
+        String gender = "unknown";
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if ("*".equals(reader.nextName())) {
+                gender = classify(reader.nextString());
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return gender;
+    }
+
+    /**
+     * Scores one page of wikitext in a single pass.
+     */
+    public static String classify(CharSequence text) {
+        int length = text.length();
+        int templateDepth = 0;
+        int fieldGenders = 0;
+        int maleScore = 0;
+        int femaleScore = 0;
+
+        int i = 0;
+        while (i < length) {
+            char c = text.charAt(i);
+            if (c == '{' && i + 1 < length && text.charAt(i + 1) == '{') {
+                templateDepth++;
+                i += 2;
+            } else if (c == '}' && i + 1 < length && text.charAt(i + 1) == '}') {
+                if (templateDepth > 0) {
+                    templateDepth--;
+                }
+                i += 2;
+            } else if (isWordChar(c)) {
+                int start = i;
+                while (i < length && isWordChar(text.charAt(i))) {
+                    i++;
+                }
+                int wordLength = i - start;
+                if (isGenderField(text, start, wordLength)) {
+                    int j = i;
+                    while (j < length && isFieldSeparator(text.charAt(j))) {
+                        j++;
+                    }
+                    int valueStart = j;
+                    while (j < length && isWordChar(text.charAt(j))) {
+                        j++;
+                    }
+                    if (matches(text, valueStart, j - valueStart, "male")) {
+                        fieldGenders |= MALE;
+                    } else if (matches(text, valueStart, j - valueStart, "female")) {
+                        fieldGenders |= FEMALE;
+                    }
+                } else if (templateDepth == 0) {
+                    if (matches(text, start, wordLength, "he") || matches(text, start, wordLength, "him")
+                            || matches(text, start, wordLength, "his")) {
+                        maleScore++;
+                    } else if (matches(text, start, wordLength, "she") || matches(text, start, wordLength, "her")
+                            || matches(text, start, wordLength, "hers")) {
+                        femaleScore++;
+                    }
+                }
+            } else {
+                i++;
+            }
+        }
+
+        if (fieldGenders == MALE) return "male";
+        if (fieldGenders == FEMALE) return "female";
+        if (maleScore > 0 && femaleScore == 0) return "male";
+        if (femaleScore > 0 && maleScore == 0) return "female";
+        if (maleScore == 0 && femaleScore == 0) return "unknown";
+        int diff = Math.abs(maleScore - femaleScore);
+        double ratio = Math.max(maleScore, femaleScore) / (double) Math.min(maleScore, femaleScore);
+        if (diff >= 2 && ratio >= 1.5) {
+            return maleScore > femaleScore ? "male" : "female";
+        }
+        return "unknown";
+    }
+
+    private static boolean isWordChar(char c) {
+        return Character.isLetterOrDigit(c) || c == '_';
+    }
+
+    private static boolean isFieldSeparator(char c) {
+        return c == ' ' || c == '\t' || c == ':' || c == '=' || c == '-';
+    }
+
+    /**
+     * "gender" optionally followed by a variant number, in any case.
+     */
+    private static boolean isGenderField(CharSequence text, int start, int length) {
+        if (length < 6 || !matches(text, start, 6, "gender")) {
+            return false;
+        }
+        for (int k = start + 6; k < start + length; k++) {
+            if (!Character.isDigit(text.charAt(k))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean matches(CharSequence text, int start, int length, String word) {
+        if (length != word.length()) {
+            return false;
+        }
+        for (int k = 0; k < length; k++) {
+            if (Character.toLowerCase(text.charAt(start + k)) != word.charAt(k)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,122 @@
+package com.digitalsauce;
+
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Duplicate-line cooldown and the per-speaker and global token buckets, on a manual clock.
+ */
+public class CooldownTrackerTest {
+    private final AtomicLong now = new AtomicLong(1_000_000L);
+
+    private CooldownTracker tracker(int cooldown, int speakerRate, int globalRate) {
+        CharacterTTSConfig config = new CharacterTTSConfig() {
+            @Override
+            public int playbackCooldown() {
+                return cooldown;
+            }
+
+            @Override
+            public int speakerLinesPerMinute() {
+                return speakerRate;
+            }
+
+            @Override
+            public int globalLinesPerMinute() {
+                return globalRate;
+            }
+        };
+        return new CooldownTracker(config, now::get);
+    }
+
+    @Test
+    public void ignoresRepeatedLineUntilCooldownPasses() {
+        CooldownTracker tracker = tracker(5000, 0, 0);
+        assertTrue(tracker.tryPlay(1, "Hello", false));
+        now.addAndGet(4999);
+        assertFalse(tracker.tryPlay(1, "Hello", false));
+        assertTrue(tracker.tryPlay(2, "Hello", false));
+        assertTrue(tracker.tryPlay(1, "Goodbye", false));
+        now.addAndGet(1);
+        assertTrue(tracker.tryPlay(1, "Hello", false));
+    }
+
+    @Test
+    public void speakerBucketAllowsBurstThenRefillsAtRate() {
+        CooldownTracker tracker = tracker(1000, 6, 0);
+        assertTrue(tracker.tryPlay(1, "a", true));
+        assertTrue(tracker.tryPlay(1, "b", true));
+        assertTrue(tracker.tryPlay(1, "c", true));
+        assertFalse(tracker.tryPlay(1, "d", true));
+        // Another speaker has a bucket of its own
+        assertTrue(tracker.tryPlay(2, "d", true));
+
+        // 6 per minute is one token every 10 seconds
+        now.addAndGet(9_999);
+        assertFalse(tracker.tryPlay(1, "d", true));
+        now.addAndGet(1);
+        assertTrue(tracker.tryPlay(1, "d", true));
+        assertFalse(tracker.tryPlay(1, "e", true));
+    }
+
+    @Test
+    public void globalBucketLimitsAllSpeakersTogether() {
+        CooldownTracker tracker = tracker(1000, 0, 60);
+        for (int speaker = 0; speaker < 10; speaker++) {
+            assertTrue(tracker.tryPlay(speaker, "line", true));
+        }
+        assertFalse(tracker.tryPlay(10, "line", true));
+        now.addAndGet(1000);
+        assertTrue(tracker.tryPlay(10, "line", true));
+        assertFalse(tracker.tryPlay(11, "line", true));
+    }
+
+    @Test
+    public void deniedLineDoesNotSpendTheOtherBucket() {
+        CooldownTracker tracker = tracker(1000, 6, 60);
+        for (int i = 0; i < 3; i++) {
+            assertTrue(tracker.tryPlay(1, "line " + i, true));
+        }
+        // Speaker 1 is out of tokens; its refused lines must leave the global bucket alone
+        for (int i = 0; i < 20; i++) {
+            assertFalse(tracker.tryPlay(1, "more " + i, true));
+        }
+        for (int speaker = 2; speaker < 9; speaker++) {
+            assertTrue(tracker.tryPlay(speaker, "line", true));
+        }
+        assertFalse(tracker.tryPlay(9, "line", true));
+    }
+
+    @Test
+    public void zeroRateAndUnlimitedLinesBypassBuckets() {
+        CooldownTracker unlimited = tracker(1000, 0, 0);
+        for (int i = 0; i < 50; i++) {
+            assertTrue(unlimited.tryPlay(1, "line " + i, true));
+        }
+
+        CooldownTracker limited = tracker(1000, 6, 60);
+        for (int i = 0; i < 3; i++) {
+            assertTrue(limited.tryPlay(1, "line " + i, true));
+        }
+        assertFalse(limited.tryPlay(1, "floating", true));
+        // Dialogue is not rate limited, only cooled down
+        assertTrue(limited.tryPlay(1, "dialogue", false));
+        assertFalse(limited.tryPlay(1, "dialogue", false));
+    }
+
+    @Test
+    public void sweepKeepsLinesStillCoolingDown() {
+        CooldownTracker tracker = tracker(10_000, 0, 0);
+        assertTrue(tracker.tryPlay(1, "old", false));
+        now.addAndGet(5_000);
+        assertTrue(tracker.tryPlay(1, "recent", false));
+        // Past the sweep interval: "old" has cooled down and is swept, "recent" is not
+        now.addAndGet(6_000);
+        assertTrue(tracker.tryPlay(1, "old", false));
+        assertFalse(tracker.tryPlay(1, "recent", false));
+    }
+}
@@ -0,0 +1,85 @@
+package com.digitalsauce;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Recovery of the snapshot and journal after the client dies without closing the cache.
+ */
+public class GenderCacheTest {
+    @Test
+    public void replaysJournalPastTornLastRecord() throws IOException {
+        File dir = Files.createTempDirectory("gender-cache-test").toFile();
+        try {
+            GenderCache crashed = new GenderCache(dir);
+            crashed.setDefaultGender("Hans", "male", 1000L);
+            crashed.overrideDefaultGender("Aggie", "female");
+            crashed.setGenderForId("Banker", 1613, "female");
+            crashed.flush();
+            // No close(): the journal is never folded into a snapshot
+            Files.write(new File(dir, "genderCache.journal").toPath(), "{\"name\":\"Gertr".getBytes(StandardCharsets.UTF_8),
+                    StandardOpenOption.APPEND);
+
+            GenderCache recovered = new GenderCache(dir);
+            assertEquals("male", recovered.getDefaultGender("Hans"));
+            assertEquals(1000L, recovered.getEntry("Hans").getFetchedAt());
+            assertEquals("female", recovered.getDefaultGender("Aggie"));
+            assertTrue(recovered.getEntry("Aggie").isPinned());
+            assertEquals("female", recovered.getGenderForId("Banker", 1613));
+            assertEquals(3, recovered.size());
+
+            // Appended after recovery, and the client dies again
+            recovered.setDefaultGender("Bob", "male", 3000L);
+            recovered.flush();
+            GenderCache reloaded = new GenderCache(dir);
+            assertEquals("male", reloaded.getDefaultGender("Bob"));
+            assertEquals(3000L, reloaded.getEntry("Bob").getFetchedAt());
+            assertEquals("male", reloaded.getDefaultGender("Hans"));
+            reloaded.close();
+        } finally {
+            delete(dir);
+        }
+    }
+
+    @Test
+    public void ignoresJournalLeftBehindByCompaction() throws IOException {
+        File dir = Files.createTempDirectory("gender-cache-test").toFile();
+        try {
+            Path journal = new File(dir, "genderCache.journal").toPath();
+            Path leftover = new File(dir, "leftover.journal").toPath();
+            GenderCache cache = new GenderCache(dir);
+            cache.setDefaultGender("Hans", "male", 1000L);
+            cache.flush();
+            Files.copy(journal, leftover);
+            cache.setDefaultGender("Hans", "female", 2000L);
+            cache.close();
+            // As if the client died after writing the snapshot but before truncating the journal
+            Files.move(leftover, journal, StandardCopyOption.REPLACE_EXISTING);
+
+            GenderCache recovered = new GenderCache(dir);
+            assertEquals("female", recovered.getDefaultGender("Hans"));
+            assertEquals(2000L, recovered.getEntry("Hans").getFetchedAt());
+            recovered.close();
+        } finally {
+            delete(dir);
+        }
+    }
+
+    private static void delete(File dir) throws IOException {
+        try (Stream<Path> files = Files.walk(dir.toPath())) {
+            files.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }
+    }
+}
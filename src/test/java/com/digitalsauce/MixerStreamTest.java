@@ -0,0 +1,76 @@
+package com.digitalsauce;
+
+import org.junit.Test;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Gathering a stream that arrives in short reads into whole blocks, and telling a stream that
+ * has not started yet from one that ran dry.
+ */
+public class MixerStreamTest {
+    private static final AudioFormat FORMAT = new AudioFormat(22050, 16, 1, true, false);
+
+    private static MixerStream stream(PcmRingBuffer ring) {
+        return new MixerStream(new AudioInputStream(ring, FORMAT, AudioSystem.NOT_SPECIFIED), 1.0, 0.0, 1.0);
+    }
+
+    @Test
+    public void streamThatHasNotStartedIsNotAnUnderrun() throws IOException {
+        PcmRingBuffer ring = new PcmRingBuffer(8192);
+        MixerStream stream = stream(ring);
+        MixCore mixCore = new MixCore();
+        mixCore.begin();
+        assertEquals(0, stream.mixInto(mixCore));
+        assertFalse(stream.hasDelivered());
+
+        ring.write(new byte[MixCore.BLOCK_BYTES], 0, MixCore.BLOCK_BYTES);
+        assertEquals(MixCore.BLOCK_BYTES, stream.mixInto(mixCore));
+        assertTrue(stream.hasDelivered());
+        // Running dry after that is an underrun the mixer should count
+        assertEquals(0, stream.mixInto(mixCore));
+        assertTrue(stream.hasDelivered());
+    }
+
+    @Test
+    public void shortReadsAreGatheredIntoWholeBlocks() throws IOException {
+        PcmRingBuffer ring = new PcmRingBuffer(8192);
+        MixerStream stream = stream(ring);
+        MixCore mixCore = new MixCore();
+
+        byte[] chunk = new byte[400];
+        int[] results = new int[8];
+        int count = 0;
+        for (int i = 0; i < 7; i++) {
+            ring.write(chunk, 0, chunk.length);
+            mixCore.begin();
+            int mixed = stream.mixInto(mixCore);
+            if (mixed != 0) {
+                results[count++] = mixed;
+                assertEquals(1, mixCore.getActiveStreams());
+            } else {
+                // Nothing is mixed until the block is whole
+                assertEquals(0, mixCore.getActiveStreams());
+            }
+        }
+        ring.finish();
+        int mixed;
+        while ((mixed = stream.mixInto(mixCore)) != -1) {
+            if (mixed != 0) {
+                results[count++] = mixed;
+            }
+        }
+        // 2800 bytes: two whole blocks, then the remainder as the final partial block
+        assertEquals(3, count);
+        assertEquals(MixCore.BLOCK_BYTES, results[0]);
+        assertEquals(MixCore.BLOCK_BYTES, results[1]);
+        assertEquals(2800 - 2 * MixCore.BLOCK_BYTES, results[2]);
+    }
+}
@@ -0,0 +1,118 @@
+package com.digitalsauce;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Wraparound, end of stream and the producer parking on a full ring.
+ */
+public class PcmRingBufferTest {
+    private static byte[] sequence(int from, int length) {
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = (byte) (from + i);
+        }
+        return bytes;
+    }
+
+    @Test
+    public void readsInOrderAcrossTheEndOfTheRing() {
+        PcmRingBuffer ring = new PcmRingBuffer(8);
+        assertTrue(ring.write(sequence(0, 6), 0, 6));
+        byte[] out = new byte[8];
+        assertEquals(4, ring.read(out, 0, 4));
+        assertArrayEquals(sequence(0, 4), Arrays.copyOf(out, 4));
+
+        // Two bytes fit before the end of the array, the other four wrap to the start
+        assertTrue(ring.write(sequence(6, 6), 0, 6));
+        assertEquals(8, ring.available());
+        assertEquals(8, ring.read(out, 0, 8));
+        assertArrayEquals(sequence(4, 8), out);
+        assertEquals(0, ring.available());
+    }
+
+    @Test
+    public void emptyRingReadsZeroUntilFinished() {
+        PcmRingBuffer ring = new PcmRingBuffer(8);
+        byte[] out = new byte[4];
+        assertEquals(0, ring.read(out, 0, 4));
+        assertTrue(ring.write(sequence(1, 3), 0, 3));
+        ring.finish();
+        // Data written before finish is still delivered before end of stream
+        assertEquals(3, ring.read(out, 0, 4));
+        assertEquals(-1, ring.read(out, 0, 4));
+    }
+
+    @Test
+    public void singleByteReadWaitsForDataAndReportsEndOfStream() throws InterruptedException {
+        PcmRingBuffer ring = new PcmRingBuffer(8);
+        Thread producer = new Thread(() -> {
+            sleep(50);
+            ring.write(new byte[]{(byte) 0xff, 0x01}, 0, 2);
+            ring.finish();
+        });
+        producer.start();
+        // Blocks instead of returning 0, which InputStream.read() would mean as the byte 0
+        assertEquals(0xff, ring.read());
+        assertEquals(0x01, ring.read());
+        assertEquals(-1, ring.read());
+        producer.join();
+    }
+
+    @Test
+    public void producerParksWhileFullUntilConsumerDrains() throws InterruptedException {
+        PcmRingBuffer ring = new PcmRingBuffer(8);
+        byte[] data = sequence(0, 64);
+        AtomicBoolean written = new AtomicBoolean();
+        Thread producer = new Thread(() -> {
+            written.set(ring.write(data, 0, data.length));
+            ring.finish();
+        });
+        producer.start();
+
+        byte[] received = new byte[data.length];
+        int total = 0;
+        int n;
+        while ((n = ring.read(received, total, Math.min(3, received.length - total))) != -1) {
+            if (n == 0) {
+                sleep(1);
+            }
+            total += n;
+        }
+        producer.join();
+        assertTrue(written.get());
+        assertEquals(data.length, total);
+        assertArrayEquals(data, received);
+    }
+
+    @Test
+    public void writeFailsOnceConsumerCloses() throws InterruptedException {
+        PcmRingBuffer ring = new PcmRingBuffer(4);
+        AtomicBoolean written = new AtomicBoolean(true);
+        Thread producer = new Thread(() -> written.set(ring.write(new byte[16], 0, 16)));
+        producer.start();
+        sleep(50);
+        // The producer is parked on a full ring; closing must release it rather than leave it stalled
+        ring.close();
+        producer.join(1000);
+        assertFalse(producer.isAlive());
+        assertFalse(written.get());
+        assertFalse(ring.write(new byte[1], 0, 1));
+        assertEquals(-1, ring.read(new byte[4], 0, 4));
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package com.digitalsauce;
+
+import com.digitalsauce.CharacterTTSPlugin.TtsSource;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Priority order, bounded queues, deadlines and running queued work on the caller.
+ */
+public class TtsSchedulerTest {
+    @Test
+    public void runsQueuedWorkInPriorityOrder() throws Exception {
+        TtsScheduler scheduler = new TtsScheduler(1);
+        try {
+            CountDownLatch release = blockWorker(scheduler);
+            List<TtsSource> order = Collections.synchronizedList(new ArrayList<>());
+            TtsSource[] submitted = {TtsSource.FLOATING, TtsSource.SPECULATIVE, TtsSource.TEST, TtsSource.DIALOGUE};
+            List<Future<?>> futures = new ArrayList<>();
+            for (TtsSource source : submitted) {
+                futures.add(scheduler.execute(source, () -> order.add(source)));
+            }
+            release.countDown();
+            for (Future<?> future : futures) {
+                future.get(5, TimeUnit.SECONDS);
+            }
+            assertEquals(List.of(TtsSource.DIALOGUE, TtsSource.TEST, TtsSource.SPECULATIVE, TtsSource.FLOATING), order);
+        } finally {
+            scheduler.shutdown();
+        }
+    }
+
+    @Test
+    public void fullQueueDropsItsOldestRequest() {
+        // No workers, so everything stays queued
+        TtsScheduler scheduler = new TtsScheduler(0);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < 17; i++) {
+            futures.add(scheduler.execute(TtsSource.FLOATING, () -> { }));
+        }
+        assertTrue(futures.get(0).isCancelled());
+        for (int i = 1; i < futures.size(); i++) {
+            assertFalse(futures.get(i).isCancelled());
+        }
+        assertEquals(16, scheduler.getQueueDepth(TtsSource.FLOATING));
+        assertEquals(1, scheduler.getDropped(TtsSource.FLOATING));
+        // Other classes have queues of their own
+        scheduler.execute(TtsSource.DIALOGUE, () -> { });
+        assertEquals(1, scheduler.getQueueDepth(TtsSource.DIALOGUE));
+        assertEquals(0, scheduler.getDropped(TtsSource.DIALOGUE));
+        scheduler.shutdown();
+    }
+
+    @Test
+    public void expiredRequestIsDroppedInsteadOfRun() throws Exception {
+        TtsScheduler scheduler = new TtsScheduler(1);
+        try {
+            CountDownLatch release = blockWorker(scheduler);
+            AtomicInteger runs = new AtomicInteger();
+            Future<?> expired = scheduler.execute(TtsSource.FLOATING, 1, runs::incrementAndGet);
+            Future<?> fresh = scheduler.execute(TtsSource.FLOATING, 60_000, runs::incrementAndGet);
+            Thread.sleep(20);
+            release.countDown();
+            fresh.get(5, TimeUnit.SECONDS);
+            assertTrue(expired.isCancelled());
+            assertEquals(1, runs.get());
+            assertEquals(1, scheduler.getDropped(TtsSource.FLOATING));
+        } finally {
+            scheduler.shutdown();
+        }
+    }
+
+    @Test
+    public void runIfQueuedRunsOnCallerAndLeavesTheQueue() throws Exception {
+        TtsScheduler scheduler = new TtsScheduler(0);
+        Thread caller = Thread.currentThread();
+        Future<Thread> future = scheduler.submit(TtsSource.SPECULATIVE, Thread::currentThread);
+        assertEquals(1, scheduler.getQueueDepth(TtsSource.SPECULATIVE));
+        scheduler.runIfQueued(future);
+        assertTrue(future.isDone());
+        assertEquals(caller, future.get());
+        assertEquals(0, scheduler.getQueueDepth(TtsSource.SPECULATIVE));
+
+        // A finished or cancelled request is left alone rather than run again
+        AtomicInteger runs = new AtomicInteger();
+        Future<?> once = scheduler.execute(TtsSource.SPECULATIVE, runs::incrementAndGet);
+        scheduler.runIfQueued(once);
+        scheduler.runIfQueued(once);
+        assertEquals(1, runs.get());
+        scheduler.shutdown();
+    }
+
+    @Test
+    public void speculationUsesMoreWorkersWhileChoosingOptions() throws Exception {
+        TtsScheduler scheduler = new TtsScheduler(4);
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            AtomicInteger started = new AtomicInteger();
+            for (int i = 0; i < 4; i++) {
+                scheduler.execute(TtsSource.SPECULATIVE, () -> {
+                    started.incrementAndGet();
+                    await(release);
+                });
+            }
+            Thread.sleep(100);
+            assertEquals(2, started.get());
+
+            // One worker stays reserved for test lines
+            scheduler.setDialogueState(DialogueState.OPTIONS);
+            Thread.sleep(100);
+            assertEquals(3, started.get());
+        } finally {
+            release.countDown();
+            scheduler.shutdown();
+        }
+    }
+
+    @Test
+    public void shutdownCancelsQueuedRequests() {
+        TtsScheduler scheduler = new TtsScheduler(0);
+        Future<?> queued = scheduler.execute(TtsSource.DIALOGUE, () -> { });
+        scheduler.shutdown();
+        assertTrue(queued.isCancelled());
+        assertTrue(scheduler.execute(TtsSource.DIALOGUE, () -> { }).isCancelled());
+    }
+
+    /**
+     * Occupies the only worker until the returned latch is released.
+     */
+    private static CountDownLatch blockWorker(TtsScheduler scheduler) throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        scheduler.execute(TtsSource.DIALOGUE, () -> {
+            started.countDown();
+            await(release);
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        return release;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
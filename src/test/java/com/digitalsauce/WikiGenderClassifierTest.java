@@ -0,0 +1,51 @@
+package com.digitalsauce;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeSet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+/**
+ * Checks every wiki response under {@code src/test/resources/wiki} against the genders listed
+ * for it in {@code labels.properties}.
+ */
+public class WikiGenderClassifierTest {
+    @Test
+    public void classifiesEveryFixture() throws IOException {
+        Properties labels = new Properties();
+        try (Reader reader = resource("labels.properties")) {
+            labels.load(reader);
+        }
+        for (String fixture : new TreeSet<>(labels.stringPropertyNames())) {
+            Map<String, String> expected = new LinkedHashMap<>();
+            for (String label : labels.getProperty(fixture).split(",")) {
+                int separator = label.lastIndexOf(':');
+                expected.put(label.substring(0, separator), label.substring(separator + 1));
+            }
+            Map<String, String> actual;
+            try (Reader reader = resource(fixture)) {
+                actual = WikiGenderClassifier.classifyResponse(reader, new ArrayList<>(expected.keySet()));
+            }
+            for (Map.Entry<String, String> entry : expected.entrySet()) {
+                assertEquals(fixture + ": " + entry.getKey(), entry.getValue(), actual.get(entry.getKey()));
+            }
+        }
+    }
+
+    private static Reader resource(String name) {
+        InputStream in = WikiGenderClassifierTest.class.getResourceAsStream("/wiki/" + name);
+        assertNotNull("Missing wiki fixture " + name, in);
+        return new InputStreamReader(in, StandardCharsets.UTF_8);
+    }
+}